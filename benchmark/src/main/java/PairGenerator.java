@@ -0,0 +1,127 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Пары последовательностей для проверки и замеров: случайные и похожие пары, а также неудобные случаи -
+ * тандемные повторы (много равноценных выравниваний), гомополимеры, пустая последовательность (выравнивание из
+ * одних пропусков) и пары очень разной длины.
+ */
+public class PairGenerator {
+    public static final String NUCLEOTIDES = "ATGCSWRYKMBVHDN";
+    public static final String AMINO_ACIDS = "ARNDCQEGHILKMFPSTWYVBZX";
+
+    public static class Pair {
+        final String kind, first, second;
+
+        Pair(String kind, String first, String second) {
+            this.kind = kind;
+            this.first = first;
+            this.second = second;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getFirst() {
+            return first;
+        }
+
+        public String getSecond() {
+            return second;
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + first.length() + "x" + second.length() + " [" + first + " / " + second + "]";
+        }
+    }
+
+    private final Random random;
+    private final String alphabet;
+
+    public PairGenerator(Random random, String alphabet) {
+        this.random = random;
+        this.alphabet = alphabet;
+    }
+
+    /**
+     * По count пар каждого вида длиной до maxLength.
+     */
+    public List<Pair> pairs(int count, int maxLength) {
+        List<Pair> pairs = new ArrayList<>();
+
+        for (int k = 0; k < count; k++) {
+            pairs.add(new Pair("random", random(length(maxLength)), random(length(maxLength))));
+
+            String seq = random(length(maxLength));
+            pairs.add(new Pair("similar", seq, mutate(seq, 0.05)));
+
+            String unit = random(1 + random.nextInt(4));
+            pairs.add(new Pair("repeats", repeat(unit, length(maxLength)), mutate(repeat(unit, length(maxLength)), 0.02)));
+
+            pairs.add(new Pair("homopolymers", homopolymers(length(maxLength)), homopolymers(length(maxLength))));
+
+            pairs.add(random.nextBoolean()
+                    ? new Pair("all-gaps", "", random(length(maxLength)))
+                    : new Pair("all-gaps", random(length(maxLength)), ""));
+
+            int shorter = 1 + random.nextInt(Math.max(1, maxLength / 20));
+            pairs.add(random.nextBoolean()
+                    ? new Pair("unequal", random(shorter), random(maxLength))
+                    : new Pair("unequal", random(maxLength), random(shorter)));
+        }
+        return pairs;
+    }
+
+    private int length(int maxLength) {
+        return 1 + random.nextInt(maxLength);
+    }
+
+    public String random(int length) {
+        StringBuilder seq = new StringBuilder(length);
+        for (int k = 0; k < length; k++) {
+            seq.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return seq.toString();
+    }
+
+    // точечные замены, вставки и удаления, каждое с вероятностью rate / 3
+    public String mutate(String seq, double rate) {
+        StringBuilder mutated = new StringBuilder(seq.length());
+        for (int k = 0; k < seq.length(); k++) {
+            double r = random.nextDouble();
+            char ch = seq.charAt(k);
+            if (r < rate / 3) {
+                continue;
+            } else if (r < 2 * rate / 3) {
+                mutated.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            } else if (r < rate) {
+                ch = alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            mutated.append(ch);
+        }
+        return mutated.toString();
+    }
+
+    private String repeat(String unit, int length) {
+        StringBuilder seq = new StringBuilder(length);
+        while (seq.length() < length) {
+            seq.append(unit);
+        }
+        return seq.substring(0, length);
+    }
+
+    // несколько длинных серий одного символа
+    private String homopolymers(int length) {
+        StringBuilder seq = new StringBuilder(length);
+        while (seq.length() < length) {
+            char ch = alphabet.charAt(random.nextInt(Math.min(4, alphabet.length())));
+            for (int run = 1 + random.nextInt(Math.max(1, length / 3)); run > 0 && seq.length() < length; run--) {
+                seq.append(ch);
+            }
+        }
+        return seq.toString();
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Сравнивает режимы {@link AlignmentExecutor} на нагрузке с длинным хвостом маленьких пар:
+ * 95% пар длиной 8-30 (праймеры, короткие пептиды) и 5% пар длиной 300-1000.
+ *
+ * 1) Пропускная способность: все пары отправляются сразу (закрытый цикл), задержка в этом режиме - в основном
+ *    ожидание в очереди и не печатается.
+ * 2) Задержка: пары поступают с постоянной частотой (открытый цикл) - LOADS от насыщения пула FIXED, одинаковой для
+ *    всех режимов. Задержка считается от запланированного момента поступления пары, а не от фактической отправки,
+ *    чтобы отставание отправителя не скрывало очередь.
+ *
+ * Запуск: java -cp ... RunExecutorBenchmark [количество пар]
+ */
+public class RunExecutorBenchmark {
+    private static final int OPEN = -10, EXTEND = -1;
+    private static final int ROUNDS = 3;
+    private static final double[] LOADS = {0.5, 0.8};
+
+    private static final String[] NAMES = {"fixed", "fixed + batches", "virtual", "virtual + batches"};
+    private static final AlignmentExecutor.Mode[] MODES = {
+            AlignmentExecutor.Mode.FIXED, AlignmentExecutor.Mode.FIXED, AlignmentExecutor.Mode.VIRTUAL, AlignmentExecutor.Mode.VIRTUAL
+    };
+    private static final int[] BATCHES = {1, 32, 1, 32};
+
+    public static void main(String[] args) throws Exception {
+        int pairs = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        List<String[]> workload = workload(pairs, new Random(1));
+        int modes = AlignmentExecutor.virtualThreadsAvailable() ? MODES.length : 2;
+
+        System.out.printf("%-22s %12s%n", "mode", "pairs/s");
+        double saturation = 0;
+        for (int k = 0; k < modes; k++) {
+            double throughput = saturatedThroughput(MODES[k], BATCHES[k], workload);
+            System.out.printf("%-22s %12.0f%n", NAMES[k], throughput);
+            if (k == 0) {
+                saturation = throughput;
+            }
+        }
+        if (modes < MODES.length) {
+            System.out.println("virtual threads are not available on Java " + System.getProperty("java.version"));
+        }
+
+        System.out.printf("%n%-22s %12s %10s %10s %10s%n", "mode", "offered/s", "p50, ms", "p99, ms", "p99.9, ms");
+        for (double load : LOADS) {
+            for (int k = 0; k < modes; k++) {
+                long[] latencies = openLoopLatencies(MODES[k], BATCHES[k], workload, load * saturation);
+                System.out.printf("%-22s %12.0f %10.3f %10.3f %10.3f%n", NAMES[k], load * saturation,
+                        latencies[latencies.length / 2] / 1e6,
+                        latencies[(int) (latencies.length * 0.99)] / 1e6,
+                        latencies[(int) (latencies.length * 0.999)] / 1e6);
+            }
+        }
+    }
+
+    private static List<String[]> workload(int pairs, Random random) {
+        List<String[]> workload = new ArrayList<>(pairs);
+        for (int k = 0; k < pairs; k++) {
+            boolean tiny = random.nextInt(100) < 95;
+            int min = tiny ? 8 : 300, max = tiny ? 30 : 1000;
+            workload.add(new String[]{
+                    randomSequence(random, min + random.nextInt(max - min + 1)),
+                    randomSequence(random, min + random.nextInt(max - min + 1))
+            });
+        }
+        return workload;
+    }
+
+    private static String randomSequence(Random random, int length) {
+        String alphabet = "ACGT";
+        StringBuilder seq = new StringBuilder(length);
+        for (int k = 0; k < length; k++) {
+            seq.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return seq.toString();
+    }
+
+    // все пары отправляются сразу; первые раунды - прогрев JIT, учитывается последний
+    private static double saturatedThroughput(AlignmentExecutor.Mode mode, int batchSize, List<String[]> workload) throws Exception {
+        double throughput = 0;
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            List<CompletableFuture<Alignment>> results = new ArrayList<>(workload.size());
+            long start = System.nanoTime();
+
+            try (AlignmentExecutor executor = new AlignmentExecutor(mode, OPEN, EXTEND)) {
+                executor.setBatchSize(batchSize);
+                for (String[] pair : workload) {
+                    results.add(executor.submit(pair[0], pair[1], NWUtils::dnaFull));
+                }
+                executor.flush();
+                CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+            }
+            throughput = workload.size() / ((System.nanoTime() - start) / 1e9);
+        }
+        return throughput;
+    }
+
+    // пара k поступает в момент start + k / rate; возвращает отсортированные задержки от этого момента до результата
+    private static long[] openLoopLatencies(AlignmentExecutor.Mode mode, int batchSize, List<String[]> workload, double rate) throws Exception {
+        long[] latencies = new long[workload.size()];
+        List<CompletableFuture<Alignment>> results = new ArrayList<>(workload.size());
+        double interval = 1e9 / rate;
+
+        try (AlignmentExecutor executor = new AlignmentExecutor(mode, OPEN, EXTEND)) {
+            executor.setBatchSize(batchSize);
+            long start = System.nanoTime();
+
+            for (int k = 0; k < workload.size(); k++) {
+                int index = k;
+                long arrival = start + (long) (k * interval);
+                for (long wait = arrival - System.nanoTime(); wait > 0; wait = arrival - System.nanoTime()) {
+                    if (wait > 100_000) {
+                        LockSupport.parkNanos(wait - 50_000);
+                    } else {
+                        Thread.yield();
+                    }
+                }
+                results.add(executor.submit(workload.get(k)[0], workload.get(k)[1], NWUtils::dnaFull)
+                        .whenComplete((alignment, error) -> latencies[index] = System.nanoTime() - arrival));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+        }
+
+        Arrays.sort(latencies);
+        return latencies;
+    }
+}
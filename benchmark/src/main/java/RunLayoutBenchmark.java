@@ -0,0 +1,169 @@
+import java.util.Random;
+import java.util.function.BiFunction;
+
+/**
+ * Сравнивает раскладку матриц M/I/D в памяти при заполнении полной матрицы (как в {@link NWAligner#align}):
+ *
+ * aos - один массив, M/I/D ячейки лежат рядом ({@link NWAligner#fillMatrix}, используется в core);
+ * soa - три отдельных плоских массива M, I и D с теми же формулами;
+ * jagged - три матрицы int[n][m], как в {@link Lab2Reference}, но со скорами замен по строкам;
+ * aos, boxed scores - раскладка aos, но скор замены запрашивается у BiFunction в каждой ячейке, как до
+ * {@link NWAligner#scoreRows}.
+ *
+ * Пара - случайная ДНК длиной length и ее копия с 5% замен, DNAfull, штрафы -10/-1. Для 10000x10000 каждой матрице
+ * нужно 1.2 ГБ, запускать с -Xmx2g или больше.
+ *
+ * Запуск: java -Xmx2g -cp ... RunLayoutBenchmark [length]
+ */
+public class RunLayoutBenchmark {
+    private static final int OPEN = -10, EXTEND = -1;
+    private static final int ROUNDS = 3;
+    private static final int M = NWAligner.M, I = NWAligner.I, D = NWAligner.D, CELL = NWAligner.CELL;
+
+    @FunctionalInterface
+    interface Fill {
+        // скор в последней ячейке
+        int fill(String firstSeq, String secondSeq, BiFunction<Character, Character, Integer> scoreFunction);
+    }
+
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        Random random = new Random(1);
+        String firstSeq = randomSequence(random, length);
+        StringBuilder secondSeq = new StringBuilder(firstSeq);
+        for (int k = 0; k < length / 20; k++) {
+            secondSeq.setCharAt(random.nextInt(length), "ACGT".charAt(random.nextInt(4)));
+        }
+
+        int expected = NWAligner.affineScore(firstSeq, secondSeq.toString(), OPEN, EXTEND, NWUtils::dnaFull);
+
+        System.out.printf("%dx%d%n%-20s %12s%n", length, length, "layout", "Mcells/s");
+        run("aos", RunLayoutBenchmark::fillInterleaved, firstSeq, secondSeq.toString(), expected);
+        run("soa", RunLayoutBenchmark::fillSeparate, firstSeq, secondSeq.toString(), expected);
+        run("jagged", RunLayoutBenchmark::fillJagged, firstSeq, secondSeq.toString(), expected);
+        run("aos, boxed scores", RunLayoutBenchmark::fillInterleavedBoxed, firstSeq, secondSeq.toString(), expected);
+    }
+
+    // лучшее из ROUNDS заполнений; первое заполнение - еще и прогрев JIT
+    private static void run(String name, Fill fill, String firstSeq, String secondSeq, int expected) {
+        long cells = (long) (firstSeq.length() + 1) * (secondSeq.length() + 1), best = Long.MAX_VALUE;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            System.gc();
+            long start = System.nanoTime();
+            int score = fill.fill(firstSeq, secondSeq, NWUtils::dnaFull);
+            best = Math.min(best, System.nanoTime() - start);
+
+            if (score != expected) {
+                throw new IllegalStateException(name + ": score " + score + ", expected " + expected);
+            }
+        }
+        System.out.printf("%-20s %12.1f%n", name, cells / (best / 1e3));
+    }
+
+    private static int fillInterleaved(String firstSeq, String secondSeq, BiFunction<Character, Character, Integer> scoreFunction) {
+        int[] matrix = NWAligner.fillMatrix(firstSeq, secondSeq, OPEN, EXTEND, scoreFunction);
+        int last = matrix.length - CELL;
+        return max(matrix[last + M], matrix[last + I], matrix[last + D]);
+    }
+
+    private static int fillInterleavedBoxed(String firstSeq, String secondSeq, BiFunction<Character, Character, Integer> scoreFunction) {
+        int n = firstSeq.length() + 1, m = secondSeq.length() + 1, rowSize = m * CELL,
+            inf = 2 * OPEN + (n + m) * EXTEND + 1;
+        int[] matrix = new int[n * m * CELL];
+
+        matrix[D] = matrix[I] = inf;
+        for (int i = 1; i < n; i++) {
+            matrix[i * rowSize + M] = matrix[i * rowSize + D] = inf;
+            matrix[i * rowSize + I] = OPEN + (i - 1) * EXTEND;
+        }
+        for (int j = 1; j < m; j++) {
+            matrix[j * CELL + M] = matrix[j * CELL + D] = inf;
+            matrix[j * CELL + I] = OPEN + (j - 1) * EXTEND;
+        }
+
+        for (int i = 1; i < n; i++) {
+            char a = firstSeq.charAt(i - 1);
+            for (int j = 1, cell = i * rowSize + CELL; j < m; j++, cell += CELL) {
+                int left = cell - CELL, up = cell - rowSize, diag = up - CELL;
+                int score_m = scoreFunction.apply(a, secondSeq.charAt(j - 1));
+                matrix[cell + M] = max(matrix[diag + M], matrix[diag + I], matrix[diag + D]) + score_m;
+                matrix[cell + I] = max(matrix[left + I] + EXTEND, matrix[left + M] + OPEN, matrix[left + D] + OPEN);
+                matrix[cell + D] = max(matrix[up + I] + EXTEND, matrix[up + M] + OPEN, matrix[up + D] + OPEN);
+            }
+        }
+
+        int last = matrix.length - CELL;
+        return max(matrix[last + M], matrix[last + I], matrix[last + D]);
+    }
+
+    private static int fillSeparate(String firstSeq, String secondSeq, BiFunction<Character, Character, Integer> scoreFunction) {
+        int n = firstSeq.length() + 1, m = secondSeq.length() + 1,
+            inf = 2 * OPEN + (n + m) * EXTEND + 1;
+        int[] matrixM = new int[n * m], matrixI = new int[n * m], matrixD = new int[n * m];
+        int[][] scoreRows = NWAligner.scoreRows(firstSeq, secondSeq, scoreFunction);
+
+        matrixD[0] = matrixI[0] = inf;
+        for (int i = 1; i < n; i++) {
+            matrixM[i * m] = matrixD[i * m] = inf;
+            matrixI[i * m] = OPEN + (i - 1) * EXTEND;
+        }
+        for (int j = 1; j < m; j++) {
+            matrixM[j] = matrixD[j] = inf;
+            matrixI[j] = OPEN + (j - 1) * EXTEND;
+        }
+
+        for (int i = 1; i < n; i++) {
+            int[] scores = scoreRows[i - 1];
+            for (int j = 1, cell = i * m + 1; j < m; j++, cell++) {
+                int left = cell - 1, up = cell - m, diag = up - 1;
+                matrixM[cell] = max(matrixM[diag], matrixI[diag], matrixD[diag]) + scores[j - 1];
+                matrixI[cell] = max(matrixI[left] + EXTEND, matrixM[left] + OPEN, matrixD[left] + OPEN);
+                matrixD[cell] = max(matrixI[up] + EXTEND, matrixM[up] + OPEN, matrixD[up] + OPEN);
+            }
+        }
+
+        int last = n * m - 1;
+        return max(matrixM[last], matrixI[last], matrixD[last]);
+    }
+
+    private static int fillJagged(String firstSeq, String secondSeq, BiFunction<Character, Character, Integer> scoreFunction) {
+        int n = firstSeq.length() + 1, m = secondSeq.length() + 1,
+            inf = 2 * OPEN + (n + m) * EXTEND + 1;
+        int[][] matrixM = new int[n][m], matrixI = new int[n][m], matrixD = new int[n][m];
+        int[][] scoreRows = NWAligner.scoreRows(firstSeq, secondSeq, scoreFunction);
+
+        matrixD[0][0] = matrixI[0][0] = inf;
+        for (int i = 1; i < n; i++) {
+            matrixM[i][0] = matrixD[i][0] = inf;
+            matrixI[i][0] = OPEN + (i - 1) * EXTEND;
+        }
+        for (int j = 1; j < m; j++) {
+            matrixM[0][j] = matrixD[0][j] = inf;
+            matrixI[0][j] = OPEN + (j - 1) * EXTEND;
+        }
+
+        for (int i = 1; i < n; i++) {
+            int[] scores = scoreRows[i - 1];
+            for (int j = 1; j < m; j++) {
+                matrixM[i][j] = max(matrixM[i - 1][j - 1], matrixI[i - 1][j - 1], matrixD[i - 1][j - 1]) + scores[j - 1];
+                matrixI[i][j] = max(matrixI[i][j - 1] + EXTEND, matrixM[i][j - 1] + OPEN, matrixD[i][j - 1] + OPEN);
+                matrixD[i][j] = max(matrixI[i - 1][j] + EXTEND, matrixM[i - 1][j] + OPEN, matrixD[i - 1][j] + OPEN);
+            }
+        }
+
+        return max(matrixM[n - 1][m - 1], matrixI[n - 1][m - 1], matrixD[n - 1][m - 1]);
+    }
+
+    private static int max(int a, int b, int c) {
+        return Math.max(a, Math.max(b, c));
+    }
+
+    private static String randomSequence(Random random, int length) {
+        StringBuilder seq = new StringBuilder(length);
+        for (int k = 0; k < length; k++) {
+            seq.append("ACGT".charAt(random.nextInt(4)));
+        }
+        return seq.toString();
+    }
+}
@@ -0,0 +1,454 @@
+import org.apache.commons.cli.*;
+
+import javax.naming.ConfigurationException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+
+/**
+ * Проверка корректности и производительности всех способов подсчета скора.
+ *
+ * 1) На парах из {@link PairGenerator} (оба алфавита NWUtils, аффинные, линейные и единичные штрафы) каждый способ
+ *    должен дать тот же скор, что и исходный алгоритм lab2 {@link Lab2Reference}.
+ * 2) Пропускная способность каждого способа (млн ячеек матрицы в секунду) сравнивается с файлом базовых значений;
+ *    падение больше чем на threshold процентов считается регрессией. Если файла нет или указан -u, он записывается.
+ *
+ * При расхождении скоров или регрессии программа завершается с кодом 1.
+ */
+public class RunRegressionHarness {
+    private static final long MEASURE_MILLIS = 200;
+    private static final int PASSES = 3;
+
+    @FunctionalInterface
+    interface Engine {
+        int score(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction);
+    }
+
+    static class Scoring {
+        final String name, alphabet;
+        final BiFunction<Character, Character, Integer> scoreFunction;
+        final int open, extend;
+
+        Scoring(String name, String alphabet, BiFunction<Character, Character, Integer> scoreFunction, int open, int extend) {
+            this.name = name;
+            this.alphabet = alphabet;
+            this.scoreFunction = scoreFunction;
+            this.open = open;
+            this.extend = extend;
+        }
+
+        boolean isUnitCost() {
+            return scoreFunction == NWUtils.UNIT_COST && open == -1 && extend == -1;
+        }
+    }
+
+    // строка замера пропускной способности: ключ в таблице и файле базовых значений, способ, скоринг и пары
+    private static class Row {
+        final String key;
+        final Engine engine;
+        final Scoring scoring;
+        final List<PairGenerator.Pair> workload;
+
+        Row(String key, Engine engine, Scoring scoring, List<PairGenerator.Pair> workload) {
+            this.key = key;
+            this.engine = engine;
+            this.scoring = scoring;
+            this.workload = workload;
+        }
+    }
+
+    static final List<Scoring> SCORINGS = Arrays.asList(
+            new Scoring("nucleotide affine", PairGenerator.NUCLEOTIDES, NWUtils::dnaFull, -10, -1),
+            new Scoring("nucleotide linear", PairGenerator.NUCLEOTIDES, NWUtils::dnaFull, -4, -4),
+            new Scoring("amino acid affine", PairGenerator.AMINO_ACIDS, NWUtils::blosum62, -11, -1),
+            new Scoring("amino acid linear", PairGenerator.AMINO_ACIDS, NWUtils::blosum62, -6, -6),
+            new Scoring("unit cost", PairGenerator.NUCLEOTIDES, NWUtils.UNIT_COST, -1, -1)
+    );
+
+    static final String REFERENCE = "lab2-reference", BIT_PARALLEL = "bit-parallel", AMINO_SUFFIX = ".amino";
+    private static final String OPTIONS = "options";
+
+    /**
+     * Все способы подсчета скора; lab2-reference - эталон, full - {@link NWAligner#align}. bit-parallel применим только к единичной стоимости,
+     * auto - {@link NWAligner#alignmentScore}, который сам выбирает между bit-parallel и linear-memory.
+     */
+    static Map<String, Engine> engines(ForkJoinPool pool) {
+        AlignmentDispatcher dispatcher = new AlignmentDispatcher(pool, null);
+        Map<String, Engine> engines = new LinkedHashMap<>();
+
+        engines.put(REFERENCE, Lab2Reference::score);
+        engines.put("full", (a, b, open, extend, sf) -> NWAligner.align(a, b, open, extend, sf).getScore());
+        engines.put("linear-memory", NWAligner::affineScore);
+        engines.put("enumerator", RunRegressionHarness::enumeratedScore);
+        engines.put("banded", (a, b, open, extend, sf) -> BandedAligner.score(a, b, open, extend, sf, 8));
+        engines.put("wavefront", (a, b, open, extend, sf) -> WavefrontAligner.score(a, b, open, extend, sf, pool, 64));
+        engines.put("dispatcher", dispatcher::score);
+        engines.put("auto", NWAligner::alignmentScore);
+        engines.put(BIT_PARALLEL, (a, b, open, extend, sf) -> -MyersEditDistance.distance(a, b));
+
+        return engines;
+    }
+
+    /**
+     * Скор первого выравнивания {@link AlignmentEnumerator}. Перебор проверяется на первых двух выравниваниях:
+     * они различны, не упорядочены по возрастанию скора, и скор каждого равен скору его пути по матрице.
+     *
+     * @throws IllegalStateException если проверка не прошла
+     */
+    static int enumeratedScore(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction) {
+        AlignmentEnumerator alignments = new AlignmentEnumerator(firstSeq, secondSeq, open, extend, scoreFunction);
+        Alignment first = alignments.next();
+        checkPath(first, firstSeq, secondSeq, open, extend, scoreFunction);
+
+        if (alignments.hasNext()) {
+            Alignment second = alignments.next();
+            checkPath(second, firstSeq, secondSeq, open, extend, scoreFunction);
+            if (second.getScore() > first.getScore()) {
+                throw new IllegalStateException("second alignment scores " + second.getScore() + " above the first " + first.getScore());
+            }
+            if (second.getFirstSeq().equals(first.getFirstSeq()) && second.getSecondSeq().equals(first.getSecondSeq())) {
+                throw new IllegalStateException("second alignment repeats the first");
+            }
+        }
+        return first.getScore();
+    }
+
+    private static void checkPath(Alignment alignment, String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction) {
+        if (!alignment.getFirstSeq().replace("_", "").equals(firstSeq) || !alignment.getSecondSeq().replace("_", "").equals(secondSeq)) {
+            throw new IllegalStateException("alignment " + alignment.getFirstSeq() + " / " + alignment.getSecondSeq() + " changes the sequences");
+        }
+        int score = pathScore(alignment, open, extend, scoreFunction);
+        if (score != alignment.getScore()) {
+            throw new IllegalStateException("alignment " + alignment.getFirstSeq() + " / " + alignment.getSecondSeq()
+                    + " reported with score " + alignment.getScore() + ", its path scores " + score);
+        }
+    }
+
+    /**
+     * Скор пути выравнивания по матрицам M/I/D {@link NWAligner}. В рекуррентных формулах и I, и D продолжают
+     * пропуск со штрафом extend только из состояния I, из M и D - со штрафом open. Начальные удаления (пока второй
+     * последовательности не было) лежат в нулевом столбце, где хранится только I.
+     */
+    static int pathScore(Alignment alignment, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction) {
+        String first = alignment.getFirstSeq(), second = alignment.getSecondSeq();
+        int score = 0, state = NWAligner.M;
+        boolean leading = true;
+
+        for (int k = 0; k < first.length(); k++) {
+            char a = first.charAt(k), b = second.charAt(k);
+            if (a != '_' && b != '_') {
+                score += scoreFunction.apply(a, b);
+                state = NWAligner.M;
+                leading = false;
+            } else {
+                score += state == NWAligner.I ? extend : open;
+                state = a == '_' || leading ? NWAligner.I : NWAligner.D;
+                leading &= b == '_';
+            }
+        }
+        return score;
+    }
+
+    /**
+     * @return описания расхождений со скором lab2-reference, пустой список - все способы совпали
+     */
+    static List<String> checkScores(Map<String, Engine> engines, Random random, int count, int maxLength) {
+        List<String> mismatches = new ArrayList<>();
+
+        for (Scoring scoring : SCORINGS) {
+            for (PairGenerator.Pair pair : new PairGenerator(random, scoring.alphabet).pairs(count, maxLength)) {
+                int expected = engines.get(REFERENCE).score(pair.first, pair.second, scoring.open, scoring.extend, scoring.scoreFunction);
+
+                for (Map.Entry<String, Engine> engine : engines.entrySet()) {
+                    if (engine.getKey().equals(REFERENCE) || engine.getKey().equals(BIT_PARALLEL) && !scoring.isUnitCost()) {
+                        continue;
+                    }
+                    try {
+                        int actual = engine.getValue().score(pair.first, pair.second, scoring.open, scoring.extend, scoring.scoreFunction);
+                        if (actual != expected) {
+                            mismatches.add(String.format("%s, %s: expected %d, got %d on %s",
+                                    scoring.name, engine.getKey(), expected, actual, pair));
+                        }
+                    } catch (RuntimeException e) {
+                        mismatches.add(String.format("%s, %s: %s on %s", scoring.name, engine.getKey(), e.getMessage(), pair));
+                    }
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Пропускная способность, млн ячеек в секунду, на похожих и случайных парах длиной около length: нуклеотидных
+     * с DNAfull (ключ - имя способа; bit-parallel - с единичной стоимостью) и аминокислотных с BLOSUM62 (ключ - имя
+     * способа с суффиксом ".amino"; у bit-parallel такой строки нет). Берется лучшее время из PASSES проходов
+     * по MEASURE_MILLIS.
+     */
+    static Map<String, Double> measureThroughput(Map<String, Engine> engines, Random random, int length) {
+        List<PairGenerator.Pair> nucleotides = throughputWorkload(new PairGenerator(random, "ACGT"), length),
+                aminoAcids = throughputWorkload(new PairGenerator(random, "ARNDCQEGHILKMFPSTWYV"), length);
+
+        List<Row> rows = new ArrayList<>();
+        for (Map.Entry<String, Engine> engine : engines.entrySet()) {
+            Scoring scoring = engine.getKey().equals(BIT_PARALLEL) ? SCORINGS.get(SCORINGS.size() - 1) : SCORINGS.get(0);
+            rows.add(new Row(engine.getKey(), engine.getValue(), scoring, nucleotides));
+        }
+        for (Map.Entry<String, Engine> engine : engines.entrySet()) {
+            if (!engine.getKey().equals(BIT_PARALLEL)) {
+                rows.add(new Row(engine.getKey() + AMINO_SUFFIX, engine.getValue(), SCORINGS.get(2), aminoAcids));
+            }
+        }
+
+        // проходы по всем строкам чередуются, чтобы фоновая нагрузка и состояние JIT сказывались на всех одинаково;
+        // первый проход - прогрев
+        Map<String, Long> best = new LinkedHashMap<>();
+        for (int pass = 0; pass <= PASSES; pass++) {
+            for (Row row : rows) {
+                long deadline = System.nanoTime() + MEASURE_MILLIS * 1_000_000;
+
+                do {
+                    long start = System.nanoTime();
+                    for (PairGenerator.Pair pair : row.workload) {
+                        row.engine.score(pair.first, pair.second, row.scoring.open, row.scoring.extend, row.scoring.scoreFunction);
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    if (pass > 0) {
+                        best.merge(row.key, elapsed, Math::min);
+                    }
+                } while (System.nanoTime() < deadline);
+            }
+        }
+
+        Map<String, Double> throughput = new LinkedHashMap<>();
+        for (Row row : rows) {
+            long cells = 0;
+            for (PairGenerator.Pair pair : row.workload) {
+                cells += (long) (pair.first.length() + 1) * (pair.second.length() + 1);
+            }
+            throughput.put(row.key, cells / (best.get(row.key) / 1e3));
+        }
+        return throughput;
+    }
+
+    private static List<PairGenerator.Pair> throughputWorkload(PairGenerator generator, int length) {
+        List<PairGenerator.Pair> workload = new ArrayList<>();
+        for (int k = 0; k < 4; k++) {
+            String seq = generator.random(length);
+            workload.add(new PairGenerator.Pair("similar", seq, generator.mutate(seq, 0.05)));
+            workload.add(new PairGenerator.Pair("random", generator.random(length), generator.random(length)));
+        }
+        return workload;
+    }
+
+    /**
+     * @return описания регрессий: способы, пропускная способность которых упала больше чем на долю threshold
+     */
+    static List<String> regressions(Properties baseline, Map<String, Double> throughput, double threshold) {
+        List<String> regressions = new ArrayList<>();
+
+        for (Map.Entry<String, Double> engine : throughput.entrySet()) {
+            String value = baseline.getProperty(engine.getKey());
+            if (value == null) {
+                continue;
+            }
+            double base = Double.parseDouble(value);
+            if (engine.getValue() < base * (1 - threshold)) {
+                regressions.add(String.format("%s: %.1f Mcells/s, baseline %.1f Mcells/s (%.0f%%)",
+                        engine.getKey(), engine.getValue(), base, 100 * (engine.getValue() / base - 1)));
+            }
+        }
+        return regressions;
+    }
+
+    public static void main(String[] args) {
+        ForkJoinPool pool = null;
+        boolean failed = false;
+
+        try {
+            CommandLine cmd = initCommandLine(args);
+
+            if(cmd != null) {
+                Path baselineFile = Paths.get(cmd.hasOption('b') ? cmd.getOptionValue('b') : "baseline.properties");
+                int threshold = cmd.hasOption("threshold") ? parseInt(cmd.getOptionValue("threshold")).orElse(-1) : 20;
+                int pairs = cmd.hasOption('n') ? parseInt(cmd.getOptionValue('n')).orElse(0) : 20;
+                int length = cmd.hasOption('l') ? parseInt(cmd.getOptionValue('l')).orElse(0) : 2000;
+                long seed = cmd.hasOption("seed")
+                        ? parseLong(cmd.getOptionValue("seed"))
+                                .orElseThrow(() -> new ConfigurationException("Invalid seed value. It should be integer"))
+                        : 1;
+
+                if(threshold < 0 || threshold > 100) {
+                    throw new ConfigurationException("Invalid threshold value. It should be integer from 0 to 100");
+                }
+                if(pairs < 1) {
+                    throw new ConfigurationException("Invalid pairs value. It should be positive integer");
+                }
+                if(length < 1) {
+                    throw new ConfigurationException("Invalid length value. It should be positive integer");
+                }
+
+                pool = new ForkJoinPool();
+                Map<String, Engine> engines = engines(pool);
+
+                List<String> mismatches = checkScores(engines, new Random(seed), pairs, 300);
+                for (String mismatch : mismatches) {
+                    System.err.println("[error] Score mismatch: " + mismatch);
+                }
+                System.out.printf("Scores: %d mismatches%n", mismatches.size());
+                failed = !mismatches.isEmpty();
+
+                // от объема проверки зависит профиль, собранный JIT, поэтому сравнивать можно только при тех же опциях
+                String options = String.format("--pairs %d --length %d --seed %d", pairs, length, seed);
+                Properties baseline = new Properties();
+                boolean hasBaseline = Files.exists(baselineFile);
+                if (hasBaseline) {
+                    try (Reader in = Files.newBufferedReader(baselineFile)) {
+                        baseline.load(in);
+                    }
+                    if (!cmd.hasOption('u') && !options.equals(baseline.getProperty(OPTIONS, options))) {
+                        throw new ConfigurationException("Baseline was measured with " + baseline.getProperty(OPTIONS)
+                                + ". Run with the same options or update the baseline with -u");
+                    }
+                }
+
+                Map<String, Double> throughput = measureThroughput(engines, new Random(seed), length);
+
+                System.out.printf("%-22s %14s %14s%n", "engine", "Mcells/s", "baseline");
+                for (Map.Entry<String, Double> engine : throughput.entrySet()) {
+                    System.out.printf("%-22s %14.1f %14s%n", engine.getKey(), engine.getValue(), baseline.getProperty(engine.getKey(), "-"));
+                }
+
+                if (!hasBaseline || cmd.hasOption('u')) {
+                    Properties updated = new Properties();
+                    updated.setProperty(OPTIONS, options);
+                    for (Map.Entry<String, Double> engine : throughput.entrySet()) {
+                        updated.setProperty(engine.getKey(), String.format("%.1f", engine.getValue()));
+                    }
+                    try (Writer out = Files.newBufferedWriter(baselineFile)) {
+                        updated.store(out, "Throughput baseline, Mcells/s");
+                    }
+                    System.out.println("Baseline written to " + baselineFile);
+                } else {
+                    List<String> regressions = regressions(baseline, throughput, threshold / 100.0);
+                    for (String regression : regressions) {
+                        System.err.println("[error] Throughput regression: " + regression);
+                    }
+                    failed |= !regressions.isEmpty();
+                }
+            }
+
+        } catch (ConfigurationException e) {
+            String msg = e.getMessage();
+            System.err.printf("[error] Invalid harness configuration %s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+            failed = true;
+        } catch (IOException e) {
+            String msg = e.getMessage();
+            System.err.printf("[error] Unable to read or write baseline file%s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+            failed = true;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static CommandLine initCommandLine(String[] args) {
+        Options cmdOptions = new Options();
+
+        cmdOptions.addOption(
+                Option.builder("b")
+                        .longOpt("baseline")
+                        .desc("Throughput baseline file. Default value: baseline.properties.")
+                        .hasArg()
+                        .type(String.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder()
+                        .longOpt("threshold")
+                        .desc("Allowed throughput drop against the baseline, percent. Default value: 20.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("u")
+                        .longOpt("update")
+                        .desc("Write measured throughput as the new baseline.")
+                        .hasArg(false)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("n")
+                        .longOpt("pairs")
+                        .desc("Number of generated pairs of each kind per scoring for the score check. Default value: 20.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("l")
+                        .longOpt("length")
+                        .desc("Sequence length for throughput measurement. Default value: 2000.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder()
+                        .longOpt("seed")
+                        .desc("Random seed. Default value: 1.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Long.class)
+                        .build()
+        );
+
+        CommandLine cmd = null;
+        try {
+            cmd = new DefaultParser().parse(cmdOptions, args);
+        } catch (ParseException e) {
+            String msg = e.getMessage();
+            System.err.printf("[error] Invalid command line arguments%s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+            HelpFormatter formatter = new HelpFormatter();
+            formatter.printHelp("regression", cmdOptions, true);
+        }
+        return cmd;
+    }
+
+    private static Optional<Integer> parseInt(String toParse) {
+        try {
+            return Optional.of(Integer.parseInt(toParse));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<Long> parseLong(String toParse) {
+        try {
+            return Optional.of(Long.parseLong(toParse));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
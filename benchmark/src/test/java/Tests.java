@@ -0,0 +1,77 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class Tests {
+    @Test
+    public void generatedPairsCoverEdgeCases() {
+        List<PairGenerator.Pair> pairs = new PairGenerator(new Random(1), PairGenerator.NUCLEOTIDES).pairs(3, 50);
+
+        assertEquals(18, pairs.size());
+        assertTrue(pairs.stream().anyMatch(pair -> pair.getFirst().isEmpty() || pair.getSecond().isEmpty()));
+        for (PairGenerator.Pair pair : pairs) {
+            assertTrue(pair.getFirst().length() <= 50 * 1.1 && pair.getSecond().length() <= 50 * 1.1, pair.toString());
+            assertTrue(NWUtils.isNucleotideSequence(pair.getFirst() + pair.getSecond()), pair.toString());
+        }
+    }
+
+    @Test
+    public void enginesMatchReference() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<String> mismatches = RunRegressionHarness.checkScores(RunRegressionHarness.engines(pool), new Random(7), 3, 120);
+            assertTrue(mismatches.isEmpty(), String.join("\n", mismatches));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void mismatchIsReported() {
+        Map<String, RunRegressionHarness.Engine> engines = new LinkedHashMap<>();
+        engines.put(RunRegressionHarness.REFERENCE, Lab2Reference::score);
+        engines.put("broken", (a, b, open, extend, sf) -> NWAligner.affineScore(a, b, open, extend, sf) + (a.length() > 10 ? 1 : 0));
+        engines.put("failing", (a, b, open, extend, sf) -> {
+            throw new IllegalStateException("second alignment repeats the first");
+        });
+
+        List<String> mismatches = RunRegressionHarness.checkScores(engines, new Random(7), 2, 60);
+        assertTrue(mismatches.stream().anyMatch(mismatch -> mismatch.contains("broken: expected")));
+        assertTrue(mismatches.stream().anyMatch(mismatch -> mismatch.contains("failing: second alignment repeats the first")));
+        assertTrue(mismatches.stream().allMatch(mismatch -> mismatch.contains("broken") || mismatch.contains("failing")));
+    }
+
+    @Test
+    public void pathScoreFollowsMatrixRecurrences() {
+        // начальные удаления лежат в нулевом столбце (I), продолжение пропуска из D штрафуется как открытие
+        assertEquals(-10 - 1 + 5, RunRegressionHarness.pathScore(new Alignment(0, "AAC", "__C"), -10, -1, NWUtils::dnaFull));
+        assertEquals(5 - 10 - 10, RunRegressionHarness.pathScore(new Alignment(0, "CAA", "C__"), -10, -1, NWUtils::dnaFull));
+        assertEquals(5 - 10 - 1, RunRegressionHarness.pathScore(new Alignment(0, "C_A", "CA_"), -10, -1, NWUtils::dnaFull));
+    }
+
+    @Test
+    public void throughputRegressionDetected() {
+        Properties baseline = new Properties();
+        baseline.setProperty("banded", "100.0");
+        baseline.setProperty("wavefront", "50.0");
+
+        Map<String, Double> throughput = new LinkedHashMap<>();
+        throughput.put("banded", 85.0);
+        throughput.put("wavefront", 30.0);
+        throughput.put("new-engine", 1.0);
+
+        List<String> regressions = RunRegressionHarness.regressions(baseline, throughput, 0.2);
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.get(0).startsWith("wavefront"));
+
+        assertTrue(RunRegressionHarness.regressions(baseline, throughput, 0.5).isEmpty());
+    }
+}
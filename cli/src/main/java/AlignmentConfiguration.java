@@ -4,11 +4,31 @@ class AlignmentConfiguration {
     private int open = -10;
     private int extend = -1;
     private String alignmentFile;
+    private int alternatives = 1;
+    private boolean editDistance;
+    private boolean scoreOnly;
+    private boolean verbose;
 
     public void setAlignmentFile(String alignmentFile) {
         this.alignmentFile = alignmentFile;
     }
 
+    public void setAlternatives(int alternatives) {
+        this.alternatives = alternatives;
+    }
+
+    public void setEditDistance(boolean editDistance) {
+        this.editDistance = editDistance;
+    }
+
+    public void setScoreOnly(boolean scoreOnly) {
+        this.scoreOnly = scoreOnly;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
 
     public AlignmentConfiguration(char compound, String firstSeqFile, String secondSeqFile, int open, int extend) {
         this.compound = compound;
@@ -47,5 +67,25 @@ class AlignmentConfiguration {
         return open;
     }
 
+    public int getExtend() {
+        return extend;
+    }
+
+    public int getAlternatives() {
+        return alternatives;
+    }
+
+    public boolean isEditDistance() {
+        return editDistance;
+    }
+
+    public boolean isScoreOnly() {
+        return scoreOnly;
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
 
 }
\ No newline at end of file
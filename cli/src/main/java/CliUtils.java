@@ -0,0 +1,40 @@
+import org.apache.commons.cli.CommandLine;
+
+import javax.naming.ConfigurationException;
+import java.util.Optional;
+
+/**
+ * Разбор значений опций, общий для всех программ модуля cli.
+ */
+class CliUtils {
+    private CliUtils() {
+    }
+
+    /**
+     * Тип вещества из опции -c: 'a' - аминокислоты (по умолчанию), 'n' - нуклеотиды.
+     */
+    static char parseCompound(CommandLine cmd) throws ConfigurationException {
+        String compound = cmd.hasOption('c') ? cmd.getOptionValue('c') : "a";
+
+        if(!compound.equals("a") && !compound.equals("n")) {
+            throw new ConfigurationException("Invalid compound '" + compound + "'. Compound may has values 'a' or 'n'." );
+        }
+        return compound.charAt(0);
+    }
+
+    static Optional<Integer> parseInt(String toParse) {
+        try {
+            return Optional.of(Integer.parseInt(toParse));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    static Optional<Long> parseLong(String toParse) {
+        try {
+            return Optional.of(Long.parseLong(toParse));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+import org.apache.commons.cli.*;
+
+import javax.naming.ConfigurationException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class RunAlignmentPipeline {
+
+    public static void main(String[] args) {
+        PrintWriter outWriter = null;
+        BufferedReader inReader = null;
+
+        try {
+            CommandLine cmd = initCommandLine(args);
+
+            if(cmd != null) {
+                char compound = CliUtils.parseCompound(cmd);
+                int open = CliUtils.parseInt(cmd.getOptionValue("open")).orElse(-10);
+                int extend = CliUtils.parseInt(cmd.getOptionValue("e")).orElse(-1);
+                int threads = cmd.hasOption('t')
+                        ? CliUtils.parseInt(cmd.getOptionValue('t')).orElse(0)
+                        : Runtime.getRuntime().availableProcessors();
+                int buffer = cmd.hasOption('b') ? CliUtils.parseInt(cmd.getOptionValue('b')).orElse(0) : 64;
+                int validateThreads = cmd.hasOption("validate-threads") ? CliUtils.parseInt(cmd.getOptionValue("validate-threads")).orElse(0) : 1;
+                int formatThreads = cmd.hasOption("format-threads") ? CliUtils.parseInt(cmd.getOptionValue("format-threads")).orElse(0) : 1;
+                long memory = cmd.hasOption("memory") ? CliUtils.parseLong(cmd.getOptionValue("memory")).orElse(0L) : 0;
+
+                if(open > 0) {
+                    throw new ConfigurationException("Invalid open value. It should be negative integer");
+                }
+                if(extend > 0) {
+                    throw new ConfigurationException("Invalid extend value. It should be negative integer");
+                }
+                if(threads < 1) {
+                    throw new ConfigurationException("Invalid threads value. It should be positive integer");
+                }
+                if(buffer < 1) {
+                    throw new ConfigurationException("Invalid buffer value. It should be positive integer");
+                }
+                if(validateThreads < 1) {
+                    throw new ConfigurationException("Invalid validate-threads value. It should be positive integer");
+                }
+                if(formatThreads < 1) {
+                    throw new ConfigurationException("Invalid format-threads value. It should be positive integer");
+                }
+                if(cmd.hasOption("memory") && memory < 1) {
+                    throw new ConfigurationException("Invalid memory value. It should be positive integer");
+                }
+
+                // Без -i пары читаются из стандартного ввода
+                inReader = cmd.hasOption('i')
+                        ? Files.newBufferedReader(Paths.get(cmd.getOptionValue('i')))
+                        : new BufferedReader(new InputStreamReader(System.in));
+
+                AlignmentPipeline pipeline = new AlignmentPipeline(compound, open, extend);
+                pipeline.setAlignThreads(threads);
+                pipeline.setValidateThreads(validateThreads);
+                pipeline.setFormatThreads(formatThreads);
+                pipeline.setBufferSize(buffer);
+                if (cmd.hasOption("memory")) {
+                    pipeline.setMemoryBudget(memory << 20);
+                }
+
+                // С -s выравнивания дописываются в двоичное хранилище вместо текстового вывода
+                if (cmd.hasOption('s')) {
+                    try (AlignmentStore.Writer store = new AlignmentStore.Writer(Paths.get(cmd.getOptionValue('s')))) {
+                        pipeline.run(inReader, store, new PrintWriter(System.err, true));
+                    }
+                } else {
+                    outWriter = cmd.hasOption('o')
+                            ? new PrintWriter(cmd.getOptionValue('o'))
+                            : new PrintWriter(System.out);
+                    pipeline.run(inReader, outWriter, new PrintWriter(System.err, true));
+                }
+            }
+
+        } catch (ConfigurationException e) {
+            String msg = e.getMessage();
+            System.err.printf("[error] Invalid alignment configuration %s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+        } catch (IOException e) {
+            String msg = e.getMessage();
+            e.printStackTrace();
+            System.err.printf("[error] Unable to read or write file%s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+        } catch (InterruptedException e) {
+            System.err.println("[error] Alignment was interrupted.");
+        } finally {
+            if(outWriter != null) {
+                outWriter.close();
+            }
+            if(inReader != null) {
+                try {
+                    inReader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static CommandLine initCommandLine(String[] args) {
+        Options cmdOptions = new Options();
+
+        cmdOptions.addOption(
+                Option.builder("i")
+                        .longOpt("input")
+                        .desc("File with sequence pairs, one pair per line: 'seq1 seq2' or 'id1 seq1 id2 seq2'. Default: standard input.")
+                        .hasArg()
+                        .type(String.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("c")
+                        .longOpt("compound")
+                        .desc("Type of organic compound. Available values: 'a' - amino acids, 'n' - nucleotide  Default value: 'a'.")
+                        .type(String.class)
+                        .hasArg()
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder()
+                        .longOpt("open")
+                        .desc("Fine of open gap.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .required()
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("e")
+                        .longOpt("extend")
+                        .desc("Fine of gap extend.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .required()
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("t")
+                        .longOpt("threads")
+                        .desc("Number of alignment threads. Default value: number of available processors.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder()
+                        .longOpt("validate-threads")
+                        .desc("Number of threads that parse and check pairs. Default value: 1.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder()
+                        .longOpt("format-threads")
+                        .desc("Number of threads that format alignments for output. Default value: 1.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder()
+                        .longOpt("memory")
+                        .desc("Memory budget in MB shared by matrices of pairs aligned at the same time. Default value: 3/4 of free heap.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Long.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("b")
+                        .longOpt("buffer")
+                        .desc("Maximum number of pairs in flight between stages. Default value: 64.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("s")
+                        .longOpt("store")
+                        .desc("Append alignments to binary alignment store at this path instead of text output (see align-view).")
+                        .hasArg()
+                        .type(String.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("o")
+                        .desc("If provided match output file path with result alignments and scores.")
+                        .longOpt("output")
+                        .hasArg()
+                        .type(String.class)
+                        .build()
+        );
+
+        CommandLine cmd = null;
+        try {
+            cmd = new DefaultParser().parse(cmdOptions, args);
+        } catch (ParseException e) {
+            String msg = e.getMessage();
+            System.err.printf("[error] Invalid command line arguments%s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+            HelpFormatter formatter = new HelpFormatter();
+            formatter.printHelp("align-stream", cmdOptions, true);
+        }
+        return cmd;
+    }
+}
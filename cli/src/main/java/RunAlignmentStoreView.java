@@ -0,0 +1,117 @@
+import org.apache.commons.cli.*;
+
+import javax.naming.ConfigurationException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+/**
+ * Печатает выравнивания из двоичного хранилища {@link AlignmentStore} в том же виде, что align-stream:
+ * выбранные по номерам пары (-p) или все пары со скором не меньше заданного (--min-score).
+ */
+public class RunAlignmentStoreView {
+
+    public static void main(String[] args) {
+        PrintWriter outWriter = null;
+
+        try {
+            CommandLine cmd = initCommandLine(args);
+
+            if(cmd != null) {
+                Optional<Integer> minScore = cmd.hasOption("min-score")
+                        ? Optional.of(CliUtils.parseInt(cmd.getOptionValue("min-score"))
+                                .orElseThrow(() -> new ConfigurationException("Invalid min-score value. It should be integer")))
+                        : Optional.empty();
+
+                outWriter = cmd.hasOption('o')
+                        ? new PrintWriter(cmd.getOptionValue('o'))
+                        : new PrintWriter(System.out);
+
+                try (AlignmentStore.Reader store = new AlignmentStore.Reader(Paths.get(cmd.getOptionValue('s')))) {
+                    if (cmd.hasOption('p')) {
+                        for (String id : cmd.getOptionValues('p')) {
+                            long pairId = CliUtils.parseLong(id).orElse(-1L);
+                            if (pairId < 0 || pairId >= store.size()) {
+                                throw new ConfigurationException("Invalid pair id '" + id + "'. Store contains pairs 0.." + (store.size() - 1));
+                            }
+                            if (store.isFailed(pairId)) {
+                                System.err.printf("[error] Pair %d was not aligned.\n", pairId);
+                                continue;
+                            }
+                            store.get(pairId).print(outWriter);
+                        }
+                    } else {
+                        // скор читается без декодирования записи, запись декодируется только для выводимых пар
+                        for (long pairId = 0; pairId < store.size(); pairId++) {
+                            if (!store.isFailed(pairId) && (!minScore.isPresent() || store.score(pairId) >= minScore.get())) {
+                                store.get(pairId).print(outWriter);
+                            }
+                        }
+                    }
+                }
+            }
+
+        } catch (ConfigurationException e) {
+            String msg = e.getMessage();
+            System.err.printf("[error] Invalid alignment configuration %s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+        } catch (IOException e) {
+            String msg = e.getMessage();
+            System.err.printf("[error] Unable to read alignment store%s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+        } finally {
+            if(outWriter != null) {
+                outWriter.close();
+            }
+        }
+    }
+
+    private static CommandLine initCommandLine(String[] args) {
+        Options cmdOptions = new Options();
+
+        cmdOptions.addOption(
+                Option.builder("s")
+                        .longOpt("store")
+                        .desc("Path to binary alignment store written by align-stream -s.")
+                        .hasArg()
+                        .type(String.class)
+                        .required()
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("p")
+                        .longOpt("pairs")
+                        .desc("Numbers of pairs to print (from 0, in input order). Default: all pairs.")
+                        .hasArgs()
+                        .type(Long.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder()
+                        .longOpt("min-score")
+                        .desc("Print only pairs with score not less than this value.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("o")
+                        .desc("If provided match output file path with alignments.")
+                        .longOpt("output")
+                        .hasArg()
+                        .type(String.class)
+                        .build()
+        );
+
+        CommandLine cmd = null;
+        try {
+            cmd = new DefaultParser().parse(cmdOptions, args);
+        } catch (ParseException e) {
+            String msg = e.getMessage();
+            System.err.printf("[error] Invalid command line arguments%s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+            HelpFormatter formatter = new HelpFormatter();
+            formatter.printHelp("align-view", cmdOptions, true);
+        }
+        return cmd;
+    }
+}
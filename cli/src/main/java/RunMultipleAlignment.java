@@ -0,0 +1,206 @@
+import org.apache.commons.cli.*;
+
+import javax.naming.ConfigurationException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+
+import static java.lang.Math.min;
+
+public class RunMultipleAlignment {
+    private static final int MAX_CHARS_PER_LINE = 80;
+
+    public static void main(String[] args) {
+        PrintWriter outWriter = null;
+        ForkJoinPool pool = null;
+
+        try {
+            CommandLine cmd = initCommandLine(args);
+
+            if(cmd != null) {
+                char compound = CliUtils.parseCompound(cmd);
+                int open = CliUtils.parseInt(cmd.getOptionValue("open")).orElse(-10);
+                int extend = CliUtils.parseInt(cmd.getOptionValue("e")).orElse(-1);
+                int threads = cmd.hasOption('t')
+                        ? CliUtils.parseInt(cmd.getOptionValue('t')).orElse(0)
+                        : Runtime.getRuntime().availableProcessors();
+
+                if(open > 0) {
+                    throw new ConfigurationException("Invalid open value. It should be negative integer");
+                }
+                if(extend > 0) {
+                    throw new ConfigurationException("Invalid extend value. It should be negative integer");
+                }
+                if(threads < 1) {
+                    throw new ConfigurationException("Invalid threads value. It should be positive integer");
+                }
+
+                // Читаем последовательности: файл в формате FASTA может содержать несколько последовательностей,
+                // файл без заголовков '>' - одну, названную по имени файла
+                List<String> names = new ArrayList<>(), sequences = new ArrayList<>();
+                for (String file : cmd.getOptionValues('i')) {
+                    readSequences(Paths.get(file), names, sequences);
+                }
+
+                if (sequences.size() < 2) {
+                    throw new ConfigurationException("At least two sequences are required.");
+                }
+
+                BiFunction<Character, Character, Integer> scoreFunction;
+                if (compound == 'a' && sequences.stream().allMatch(NWUtils::isAminoAcidsSequence)) {
+                    scoreFunction = NWUtils::blosum62;
+                } else if (compound == 'n' && sequences.stream().allMatch(NWUtils::isNucleotideSequence)) {
+                    scoreFunction = NWUtils::dnaFull;
+                } else {
+                    System.err.println("[error] Invalid input sequence");
+                    return;
+                }
+
+                outWriter = cmd.hasOption('o')
+                        ? new PrintWriter(cmd.getOptionValue('o'))
+                        : new PrintWriter(System.out, true);
+                outWriter.println(compound == 'a' ? "Compound: amino acid" : "Compound: nucleotide");
+
+                pool = new ForkJoinPool(threads);
+                List<String> rows = new ProgressiveAligner(open, extend, scoreFunction, pool).align(sequences);
+
+                printAlignment(names, rows, outWriter);
+            }
+
+        } catch (ConfigurationException e) {
+            String msg = e.getMessage();
+            System.err.printf("[error] Invalid alignment configuration %s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+        } catch (IOException e) {
+            String msg = e.getMessage();
+            e.printStackTrace();
+            System.err.printf("[error] Unable to read file%s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+        } finally {
+            if(outWriter != null) {
+                outWriter.close();
+            }
+            if(pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    static void readSequences(Path file, List<String> names, List<String> sequences) throws IOException {
+        StringBuilder seq = null;
+
+        for (String line : Files.readAllLines(file)) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith(">")) {
+                if (seq != null) {
+                    sequences.add(seq.toString());
+                }
+                names.add(line.substring(1).trim());
+                seq = new StringBuilder();
+            } else {
+                if (seq == null) {
+                    names.add(file.getFileName().toString());
+                    seq = new StringBuilder();
+                }
+                seq.append(line);
+            }
+        }
+
+        if (seq != null) {
+            sequences.add(seq.toString());
+        }
+    }
+
+    private static void printAlignment(List<String> names, List<String> rows, PrintWriter out) {
+        int n = rows.get(0).length(),
+                k = (n % MAX_CHARS_PER_LINE == 0) ? n / MAX_CHARS_PER_LINE : n / MAX_CHARS_PER_LINE + 1,
+                width = names.stream().mapToInt(String::length).max().orElse(0);
+
+        out.println("Sequences: " + rows.size());
+        out.println();
+
+        for (int i = 0; i < k; i++) {
+            for (int si = 0; si < rows.size(); si++) {
+                out.printf("%-" + width + "s: ", names.get(si));
+                out.println(rows.get(si).substring(MAX_CHARS_PER_LINE * i, min(n, MAX_CHARS_PER_LINE * (i + 1))));
+            }
+            out.println();
+        }
+    }
+
+    private static CommandLine initCommandLine(String[] args) {
+        Options cmdOptions = new Options();
+
+        cmdOptions.addOption(
+                Option.builder("i")
+                        .longOpt("input")
+                        .desc("Input files with sequences, that should be aligned. FASTA files may contain several sequences.")
+                        .hasArgs()
+                        .required()
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("c")
+                        .longOpt("compound")
+                        .desc("Type of organic compound. Available values: 'a' - amino acids, 'n' - nucleotide  Default value: 'a'.")
+                        .type(String.class)
+                        .hasArg()
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder()
+                        .longOpt("open")
+                        .desc("Fine of open gap.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .required()
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("e")
+                        .longOpt("extend")
+                        .desc("Fine of gap extend.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .required()
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("t")
+                        .longOpt("threads")
+                        .desc("Number of worker threads. Default value: number of available processors.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("o")
+                        .desc("If provided match output file path with result alignment.")
+                        .longOpt("output")
+                        .hasArg()
+                        .type(String.class)
+                        .build()
+        );
+
+        CommandLine cmd = null;
+        try {
+            cmd = new DefaultParser().parse(cmdOptions, args);
+        } catch (ParseException e) {
+            String msg = e.getMessage();
+            System.err.printf("[error] Invalid command line arguments%s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+            HelpFormatter formatter = new HelpFormatter();
+            formatter.printHelp("msa", cmdOptions, true);
+        }
+        return cmd;
+    }
+}
@@ -4,21 +4,12 @@ import javax.naming.ConfigurationException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 
-import static java.lang.Math.min;
-
 public class RunSequenceAlignment {
-    private static final int MAX_CHARS_PER_LINE = 80;
-    private static final int OPEN = -10, EXTEND = -1;
-
-    @FunctionalInterface
-    interface ScoreFunction {
-        int apply(int [][]arr, int i, int j);
-    }
-
     public static void main(String[] args) {
         PrintWriter outWriter = null;
 
@@ -55,13 +46,40 @@ public class RunSequenceAlignment {
                     return;
                 }
 
+                // способ подсчета выбирается по длинам, похожести и памяти (см. AlignmentDispatcher)
+                AlignmentDispatcher dispatcher = new AlignmentDispatcher(ForkJoinPool.commonPool(),
+                        conf.isVerbose() ? new PrintWriter(System.err, true) : null);
+
                 // запускам выравнивание с заданными параметрами
-                alignSequences(firstSeq, secondSeq, OPEN, EXTEND, outWriter, scoreFunction);
+                if (conf.isEditDistance()) {
+                    outWriter.println("Edit distance: " + -NWAligner.alignmentScore(firstSeq, secondSeq, -1, -1, NWUtils.UNIT_COST));
+                } else if (conf.isScoreOnly()) {
+                    // замер скорости способов на этой машине занимает около полутора секунд, поэтому он делается один раз
+                    // для каждой скоринг функции и сохраняется в домашнем каталоге
+                    Path calibration = Paths.get(System.getProperty("user.home"), ".nwalgo",
+                            "calibration-" + (conf.getCompound() == 'a' ? "blosum62" : "dnafull") + ".properties");
+                    if (!dispatcher.loadCalibration(calibration)) {
+                        dispatcher.calibrate(scoreFunction);
+                        try {
+                            dispatcher.saveCalibration(calibration);
+                        } catch (IOException e) {
+                            System.err.printf("[warning] Unable to save calibration to %s: %s.\n", calibration, e.getMessage());
+                        }
+                    }
+                    outWriter.println("Score: " + dispatcher.score(firstSeq, secondSeq, conf.getOpen(), conf.getExtend(), scoreFunction));
+                } else if (conf.getAlternatives() > 1) {
+                    NWAligner.alignSequences(firstSeq, secondSeq, conf.getOpen(), conf.getExtend(), outWriter, scoreFunction, conf.getAlternatives());
+                } else {
+                    Alignment alignment = dispatcher.align(firstSeq, secondSeq, conf.getOpen(), conf.getExtend(), scoreFunction);
+                    NWAligner.printAlignmentAndScore(alignment.getScore(), alignment.getFirstSeq(), alignment.getSecondSeq(), outWriter);
+                }
             }
 
         } catch (ConfigurationException e) {
             String msg = e.getMessage();
             System.err.printf("[error] Invalid alignment configuration %s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+        } catch (IllegalStateException e) {
+            System.err.printf("[error] %s.\n", e.getMessage());
         } catch (IOException e) {
             String msg = e.getMessage();
             e.printStackTrace();
@@ -73,126 +91,6 @@ public class RunSequenceAlignment {
         }
     }
 
-    private static void initMatrices(int[][] matrix_m, int[][] matrix_i, int[][] matrix_d, int n, int m, int open, int extend) {
-        int inf = 2 * open + (n + m) * extend + 1;
-
-        matrix_m[0][0] = 0;
-        matrix_d[0][0] = matrix_i[0][0] = inf;
-
-        for (int i = 1; i < n; i++) {
-            matrix_m[i][0] = matrix_d[i][0] = inf;
-            matrix_i[i][0] = open + (i - 1) * extend;
-        }
-
-        for (int j = 1; j < m; j++) {
-            matrix_m[0][j] = matrix_d[0][j] = inf;
-            matrix_i[0][j] = open + (j - 1) * extend;
-        }
-    }
-
-    private static int max(int a, int b, int c) {
-        return Math.max(a, Math.max(b, c));
-    }
-
-    public static void alignSequences(String firstSeq, String secondSeq, int open, int extend, PrintWriter out, BiFunction<Character, Character, Integer> scoreFunction) {
-        int n = firstSeq.length() + 1,
-            m = secondSeq.length() + 1;
-
-        int[][] matrix_m = new int[n][m],
-                matrix_i = new int[n][m],
-                matrix_d = new int[n][m];
-
-        initMatrices(matrix_m, matrix_i, matrix_d, n, m, open, extend);
-
-        for (int i = 1; i < n; i++) {
-            for (int j = 1; j < m; j++) {
-                int score_m = scoreFunction.apply(firstSeq.charAt(i - 1), secondSeq.charAt(j - 1));
-                matrix_m[i][j] = max(matrix_m[i - 1][j - 1] + score_m, matrix_i[i - 1][j - 1] + score_m, matrix_d[i - 1][j - 1] + score_m);
-                matrix_i[i][j] = max(matrix_i[i][j - 1] + extend, matrix_m[i][j - 1] + open, matrix_d[i][j - 1] + open);
-                matrix_d[i][j] = max(matrix_i[i - 1][j] + extend, matrix_m[i - 1][j] + open, matrix_d[i - 1][j] + open);
-            }
-        }
-
-
-        StringBuilder firstBuilder = new StringBuilder();
-        StringBuilder secondBuilder = new StringBuilder();
-        int i = n - 1, j = m - 1, score;
-//        System.out.println("match matrix: ");
-//        printTable(out, matrix_m);
-//        System.out.println("insert matrix: ");
-//        printTable(out, matrix_i);
-//        System.out.println("delete matrix: ");
-//        printTable(out, matrix_d);
-
-        while(i > 0 || j > 0) {
-            score = max(matrix_i[i][j], matrix_d[i][j], matrix_m[i][j]);
-
-            // insert
-            if(j > 0 && score == matrix_i[i][j]) {
-                firstBuilder.insert(0, '_');
-                secondBuilder.insert(0, secondSeq.charAt(j - 1));
-                j--;
-            } // match/mismatch
-            else if (i > 0 && j > 0 && score == matrix_m[i][j]) {
-                firstBuilder.insert(0, firstSeq.charAt(i - 1));
-                secondBuilder.insert(0, secondSeq.charAt(j - 1));
-                i--; j--;
-            // delete
-            } else if(i > 0 && score == matrix_d[i][j]) {
-                firstBuilder.insert(0, firstSeq.charAt(i - 1));
-                secondBuilder.insert(0, '_');
-                i--;
-            }
-        }
-
-        score = max(matrix_i[n - 1][m - 1], matrix_d[n - 1][m - 1], matrix_m[n - 1][m - 1]);
-
-        printAlignmentAndScore(score, firstBuilder.toString(), secondBuilder.toString(), out);
-    }
-
-    private static void printTable(PrintWriter out, int[][] score) {
-        int m = score[0].length;
-        int n = score.length;
-
-        out.print("\t\t");
-        for (int i = 0; i < m; i++) {
-            out.print("  " + i);
-        }
-        out.println("\n" + new String(new char[n*9]).replace("\0", "_"));
-        for (int i = 0; i < n; i++) {
-            out.print(i + "\t:\t");
-            for (int j = 0; j < m; j++) {
-                out.printf("%s\t", score[i][j]);
-            }
-            out.println();
-        }
-
-        out.println(new String(new char[n*9]).replace("\0", "#"));
-    }
-
-
-    private static void printAlignmentAndScore(int score, String firstSeq, String secondSeq, PrintWriter out) {
-        int n = firstSeq.length(),
-                k = (n % MAX_CHARS_PER_LINE == 0) ? n / MAX_CHARS_PER_LINE : n / MAX_CHARS_PER_LINE + 1;
-
-        String[] sequences = {firstSeq, secondSeq};
-
-        out.println("Score: " + score);
-        out.println();
-
-        for (int i = 0; i < k; i++) {
-            for(int si = 0; si < 2; si++) {
-                out.printf("seq%d: ", si + 1);
-                for (int j = MAX_CHARS_PER_LINE * i; j < min(n, MAX_CHARS_PER_LINE * (i + 1)); j++) {
-                    out.print(sequences[si].charAt(j));
-                }
-                out.println();
-            }
-            out.println();
-        }
-
-    }
-
     private static String readInputSequence(String filepath) throws IOException {
         return new String(Files.readAllBytes(Paths.get(filepath)));
     }
@@ -225,24 +123,61 @@ public class RunSequenceAlignment {
                         .hasArg()
                         .build()
         );
+        cmdOptions.addOption(
+                Option.builder("g")
+                        .longOpt("gap")
+                        .desc("Fine of gap for linear gap penalty (the same as --open and --extend with equal values).")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
         cmdOptions.addOption(
                 Option.builder()
                         .longOpt("open")
-                        .desc("Fine of open gap.")
+                        .desc("Fine of open gap. Required unless --gap or --edit-distance is given.")
                         .hasArg()
                         .numberOfArgs(1)
                         .type(Integer.class)
-                        .required()
                         .build()
         );
         cmdOptions.addOption(
                 Option.builder("e")
                         .longOpt("extend")
-                        .desc("Fine of gap extend.")
+                        .desc("Fine of gap extend. Required unless --gap or --edit-distance is given.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder()
+                        .longOpt("edit-distance")
+                        .desc("Print only unit-cost edit distance between sequences (computed by bit-parallel algorithm).")
+                        .hasArg(false)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder()
+                        .longOpt("score-only")
+                        .desc("Print only alignment score; the fastest engine for the input is chosen automatically.")
+                        .hasArg(false)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("v")
+                        .longOpt("verbose")
+                        .desc("Print engine calibration and the engine chosen for the input to stderr.")
+                        .hasArg(false)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("k")
+                        .longOpt("alternatives")
+                        .desc("Number of best alternative alignments to print. Default value: 1.")
                         .hasArg()
                         .numberOfArgs(1)
                         .type(Integer.class)
-                        .required()
                         .build()
         );
         cmdOptions.addOption(
@@ -268,7 +203,8 @@ public class RunSequenceAlignment {
     }
 
     private static AlignmentConfiguration alignConfigFromCmd(CommandLine cmd) throws ConfigurationException {
-        String compound, seq1File, seq2File;
+        String seq1File, seq2File;
+        char compound;
         int open, extend;
 
         String[] seqFiles = cmd.getOptionValues('i');
@@ -280,14 +216,23 @@ public class RunSequenceAlignment {
         seq1File = seqFiles[0];
         seq2File = seqFiles[1];
 
-        compound = cmd.hasOption('c') ? cmd.getOptionValue('c') : "a";
+        compound = CliUtils.parseCompound(cmd);
+
+        if(cmd.hasOption('g') && (cmd.hasOption("open") || cmd.hasOption('e'))) {
+            throw new ConfigurationException("Option g can not be combined with options open, e");
+        }
 
-        if(!compound.equals("a") && !compound.equals("n")) {
-            throw new ConfigurationException("Invalid compound '" + compound + "'. Compound may has values 'a' or 'n'." );
+        if(!cmd.hasOption("edit-distance") && !cmd.hasOption('g') && (!cmd.hasOption("open") || !cmd.hasOption('e'))) {
+            throw new ConfigurationException("Missing required options: g or open, e");
         }
 
-        open = parseInt(cmd.getOptionValue("open")).orElse(-10);
-        extend = parseInt(cmd.getOptionValue("e")).orElse(-1);
+        // линейный штраф за пропуск - аффинный с равными штрафами за открытие и продолжение
+        if(cmd.hasOption('g')) {
+            open = extend = CliUtils.parseInt(cmd.getOptionValue('g')).orElse(-10);
+        } else {
+            open = CliUtils.parseInt(cmd.getOptionValue("open")).orElse(-10);
+            extend = CliUtils.parseInt(cmd.getOptionValue("e")).orElse(-1);
+        }
 
         if(open > 0) {
             throw new ConfigurationException("Invalid open value. It should be negative integer");
@@ -297,20 +242,26 @@ public class RunSequenceAlignment {
             throw new ConfigurationException("Invalid extend value. It should be negative integer");
         }
 
-        AlignmentConfiguration conf = new AlignmentConfiguration(compound.charAt(0), seq1File, seq2File, open, extend);
+        AlignmentConfiguration conf = new AlignmentConfiguration(compound, seq1File, seq2File, open, extend);
 
         if(cmd.hasOption('o')) {
             conf.setAlignmentFile(cmd.getOptionValue('o'));
         }
 
-        return conf;
-    }
+        conf.setEditDistance(cmd.hasOption("edit-distance"));
+        conf.setScoreOnly(cmd.hasOption("score-only"));
+        conf.setVerbose(cmd.hasOption('v'));
 
-    private static Optional<Integer> parseInt(String toParse) {
-        try {
-            return Optional.of(Integer.parseInt(toParse));
-        } catch (NumberFormatException e) {
-            return Optional.empty();
+        if(cmd.hasOption('k')) {
+            int alternatives = CliUtils.parseInt(cmd.getOptionValue('k')).orElse(0);
+
+            if(alternatives < 1) {
+                throw new ConfigurationException("Invalid alternatives value. It should be positive integer");
+            }
+
+            conf.setAlternatives(alternatives);
         }
+
+        return conf;
     }
 }
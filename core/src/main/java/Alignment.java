@@ -0,0 +1,22 @@
+public class Alignment {
+    private final int score;
+    private final String firstSeq, secondSeq;
+
+    public Alignment(int score, String firstSeq, String secondSeq) {
+        this.score = score;
+        this.firstSeq = firstSeq;
+        this.secondSeq = secondSeq;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public String getFirstSeq() {
+        return firstSeq;
+    }
+
+    public String getSecondSeq() {
+        return secondSeq;
+    }
+}
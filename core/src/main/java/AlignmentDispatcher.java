@@ -0,0 +1,307 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+
+/**
+ * Выбирает для каждой пары самый быстрый из доступных способов выравнивания.
+ *
+ * Полное выравнивание (с восстановлением) есть только у {@link NWAligner#align}; перед запуском проверяется,
+ * что матрица помещается в свободную память. Для подсчета только скора сравнивается оценка времени:
+ * число ячеек, которые посчитает способ, деленное на его пропускную способность на этой машине (см. {@link #calibrate}).
+ * Полоса ({@link BandedAligner}) рассматривается только для похожих последовательностей, похожесть оценивается по
+ * выборке общих k-меров. Для единичной стоимости всегда используется {@link MyersEditDistance}.
+ * Выбор и его причина печатаются в log, если он задан.
+ */
+public class AlignmentDispatcher {
+    public enum Engine { FULL, LINEAR, BANDED, WAVEFRONT, BIT_PARALLEL }
+
+    private static final int SAMPLES = 64;
+    private static final double MIN_BANDED_SIMILARITY = 0.5;
+    private static final long CALIBRATION_MILLIS = 300;
+
+    private final ForkJoinPool pool;
+    private final PrintWriter log;
+
+    // пропускная способность, ячеек матрицы в миллисекунду; до калибровки - грубые значения по умолчанию
+    private final Map<Engine, Double> throughput = new EnumMap<>(Engine.class);
+
+    public AlignmentDispatcher(ForkJoinPool pool, PrintWriter log) {
+        this.pool = pool;
+        this.log = log;
+
+        throughput.put(Engine.FULL, 30_000.0);
+        throughput.put(Engine.LINEAR, 40_000.0);
+        throughput.put(Engine.BANDED, 40_000.0);
+        throughput.put(Engine.WAVEFRONT, 40_000.0 * 0.7 * pool.getParallelism());
+        throughput.put(Engine.BIT_PARALLEL, 1_000_000.0);
+    }
+
+    public double getThroughput(Engine engine) {
+        return throughput.get(engine);
+    }
+
+    /**
+     * Измеряет пропускную способность каждого способа с заданной скоринг функцией на случайных последовательностях
+     * из A, C, G, T (эти символы есть в обоих алфавитах), около полутора секунд на все способы.
+     */
+    public void calibrate(BiFunction<Character, Character, Integer> scoreFunction) {
+        Random random = new Random(1);
+        String a = randomSequence(random, 512), b = randomSequence(random, 512),
+               c = randomSequence(random, 1024), d = randomSequence(random, 1024),
+               e = randomSequence(random, 4096), f = mutate(random, e, 0.02);
+        int open = -10, extend = -1;
+
+        throughput.put(Engine.FULL, measure(512L * 512,
+                () -> NWAligner.align(a, b, open, extend, scoreFunction)));
+        throughput.put(Engine.LINEAR, measure(512L * 512,
+                () -> NWAligner.affineScore(a, b, open, extend, scoreFunction)));
+        throughput.put(Engine.BANDED, measure(BandedAligner.cells(e.length(), f.length(), 32),
+                () -> BandedAligner.scoreInBand(e, f, open, extend, NWAligner.scoreRows(e, f, scoreFunction), 32)));
+        throughput.put(Engine.WAVEFRONT, measure(1024L * 1024,
+                () -> WavefrontAligner.score(c, d, open, extend, scoreFunction, pool, WavefrontAligner.DEFAULT_TILE)));
+        throughput.put(Engine.BIT_PARALLEL, measure((long) e.length() * f.length(),
+                () -> MyersEditDistance.distance(e, f)));
+
+        if (log != null) {
+            for (Map.Entry<Engine, Double> entry : throughput.entrySet()) {
+                log.printf("[info] calibration: %s %.1f Mcells/s%n", entry.getKey(), entry.getValue() / 1000);
+            }
+        }
+    }
+
+    /**
+     * Загружает результаты {@link #calibrate}, сохраненные {@link #saveCalibration}. Возвращает false, если файла нет
+     * или калибровка делалась с другим числом потоков в пуле (от него зависит пропускная способность WAVEFRONT).
+     */
+    public boolean loadCalibration(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+
+        if (!String.valueOf(pool.getParallelism()).equals(properties.getProperty("parallelism"))) {
+            return false;
+        }
+        Map<Engine, Double> loaded = new EnumMap<>(Engine.class);
+        for (Engine engine : Engine.values()) {
+            String value = properties.getProperty(engine.name());
+            if (value == null) {
+                return false;
+            }
+            try {
+                loaded.put(engine, Double.parseDouble(value));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        throughput.putAll(loaded);
+        return true;
+    }
+
+    public void saveCalibration(Path path) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("parallelism", String.valueOf(pool.getParallelism()));
+        for (Map.Entry<Engine, Double> entry : throughput.entrySet()) {
+            properties.setProperty(entry.getKey().name(), String.valueOf(entry.getValue()));
+        }
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(path)) {
+            properties.store(out, "AlignmentDispatcher calibration, cells per millisecond");
+        }
+    }
+
+    // запуски повторяются, пока не пройдет CALIBRATION_MILLIS (первые из них прогревают JIT), берется лучший
+    private static double measure(long cells, Runnable run) {
+        long best = Long.MAX_VALUE, deadline = System.nanoTime() + CALIBRATION_MILLIS * 1_000_000;
+        for (int round = 0; round < 3 || System.nanoTime() < deadline; round++) {
+            long start = System.nanoTime();
+            run.run();
+            long elapsed = System.nanoTime() - start;
+            if (round > 0) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        return cells / Math.max(best / 1e6, 1e-3);
+    }
+
+    // Выбранный способ; для BANDED - еще и начальная ширина полосы, чтобы не оценивать похожесть повторно
+    private static class Choice {
+        final Engine engine;
+        final int band;
+
+        Choice(Engine engine, int band) {
+            this.engine = engine;
+            this.band = band;
+        }
+    }
+
+    public Engine choose(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction, boolean scoreOnly) {
+        return choice(firstSeq, secondSeq, open, extend, scoreFunction, scoreOnly).engine;
+    }
+
+    private Choice choice(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction, boolean scoreOnly) {
+        int n = firstSeq.length(), m = secondSeq.length();
+        long cells = (long) (n + 1) * (m + 1);
+
+        if (!scoreOnly) {
+            long required = fullAlignmentBytes(n, m);
+            if (required > availableMemory()) {
+                throw new IllegalStateException(String.format(
+                        "Full alignment of %dx%d requires %d MB, only %d MB available; use score-only mode",
+                        n, m, required >> 20, availableMemory() >> 20));
+            }
+            log("%dx%d: %s (full alignment requested)", n, m, Engine.FULL);
+            return new Choice(Engine.FULL, 0);
+        }
+
+        if (NWAligner.isUnitCost(open, extend, scoreFunction)) {
+            log("%dx%d: %s (unit cost)", n, m, Engine.BIT_PARALLEL);
+            return new Choice(Engine.BIT_PARALLEL, 0);
+        }
+
+        Map<Engine, Double> estimates = new EnumMap<>(Engine.class);
+        estimates.put(Engine.LINEAR, cells / throughput.get(Engine.LINEAR));
+
+        if (pool.getParallelism() > 1
+                && (long) (n + m) * (n + m) / WavefrontAligner.DEFAULT_TILE * NWAligner.CELL * Integer.BYTES < availableMemory()) {
+            estimates.put(Engine.WAVEFRONT, cells / throughput.get(Engine.WAVEFRONT));
+        }
+
+        double similarity = similarity(firstSeq, secondSeq);
+        int band = 0;
+        if (similarity >= MIN_BANDED_SIMILARITY) {
+            band = initialBand(firstSeq, secondSeq, similarity);
+            estimates.put(Engine.BANDED, BandedAligner.cells(n, m, band) / throughput.get(Engine.BANDED));
+        }
+
+        Engine best = Engine.LINEAR;
+        for (Map.Entry<Engine, Double> estimate : estimates.entrySet()) {
+            if (estimate.getValue() < estimates.get(best)) {
+                best = estimate.getKey();
+            }
+        }
+
+        if (log != null) {
+            StringBuilder others = new StringBuilder();
+            for (Map.Entry<Engine, Double> estimate : estimates.entrySet()) {
+                others.append(String.format(" %s %.2f ms", estimate.getKey(), estimate.getValue()));
+            }
+            log("%dx%d, similarity %.2f: %s (estimated:%s)", n, m, similarity, best, others);
+        }
+        return new Choice(best, band);
+    }
+
+    public int score(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction) {
+        Choice choice = choice(firstSeq, secondSeq, open, extend, scoreFunction, true);
+        switch (choice.engine) {
+            case BIT_PARALLEL:
+                return -MyersEditDistance.distance(firstSeq, secondSeq);
+            case BANDED:
+                return BandedAligner.score(firstSeq, secondSeq, open, extend, scoreFunction, choice.band);
+            case WAVEFRONT:
+                return WavefrontAligner.score(firstSeq, secondSeq, open, extend, scoreFunction, pool, WavefrontAligner.DEFAULT_TILE);
+            default:
+                return NWAligner.affineScore(firstSeq, secondSeq, open, extend, scoreFunction);
+        }
+    }
+
+    public Alignment align(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction) {
+        Choice choice = choice(firstSeq, secondSeq, open, extend, scoreFunction, false);
+        switch (choice.engine) {
+            case FULL:
+                return NWAligner.align(firstSeq, secondSeq, open, extend, scoreFunction);
+            default:
+                throw new IllegalStateException(choice.engine + " can not restore the alignment");
+        }
+    }
+
+    /**
+     * Доля k-меров из равномерной выборки по более короткой последовательности, которые встречаются в более длинной.
+     */
+    static double similarity(String firstSeq, String secondSeq) {
+        String shorter = firstSeq.length() <= secondSeq.length() ? firstSeq : secondSeq,
+               longer = shorter == firstSeq ? secondSeq : firstSeq;
+        int k = NWUtils.isNucleotideSequence(firstSeq) && NWUtils.isNucleotideSequence(secondSeq) ? 8 : 3;
+
+        if (shorter.length() < k) {
+            return shorter.equals(longer) ? 1.0 : 0.0;
+        }
+
+        Set<String> kmers = new HashSet<>();
+        for (int i = 0; i + k <= longer.length(); i++) {
+            kmers.add(longer.substring(i, i + k));
+        }
+
+        int positions = shorter.length() - k + 1,
+            samples = Math.min(SAMPLES, positions),
+            found = 0;
+        for (int s = 0; s < samples; s++) {
+            int i = (int) ((long) s * positions / samples);
+            if (kmers.contains(shorter.substring(i, i + k))) {
+                found++;
+            }
+        }
+        return (double) found / samples;
+    }
+
+    // Ожидаемое смещение от диагонали растет с долей различий r, оцененной по доле общих k-меров: s = (1 - r)^k
+    private static int initialBand(String firstSeq, String secondSeq, double similarity) {
+        int k = NWUtils.isNucleotideSequence(firstSeq) && NWUtils.isNucleotideSequence(secondSeq) ? 8 : 3;
+        double r = 1 - Math.pow(similarity, 1.0 / k);
+        return 16 + (int) (r * Math.min(firstSeq.length(), secondSeq.length()) / 2);
+    }
+
+    // память под матрицу полного выравнивания (M/I/D в каждой ячейке)
+    static long fullAlignmentBytes(int n, int m) {
+        return (long) (n + 1) * (m + 1) * NWAligner.CELL * Integer.BYTES;
+    }
+
+    static long availableMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    private void log(String format, Object... args) {
+        if (log != null) {
+            log.printf("[info] " + format + "%n", args);
+        }
+    }
+
+    private static String randomSequence(Random random, int length) {
+        String alphabet = "ACGT";
+        StringBuilder seq = new StringBuilder(length);
+        for (int k = 0; k < length; k++) {
+            seq.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return seq.toString();
+    }
+
+    private static String mutate(Random random, String seq, double rate) {
+        StringBuilder mutated = new StringBuilder(seq.length());
+        for (int k = 0; k < seq.length(); k++) {
+            double r = random.nextDouble();
+            if (r < rate / 3) {
+                continue;
+            }
+            mutated.append(r < rate ? "ACGT".charAt(random.nextInt(4)) : seq.charAt(k));
+        }
+        return mutated.toString();
+    }
+}
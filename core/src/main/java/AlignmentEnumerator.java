@@ -0,0 +1,209 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.BiFunction;
+
+/**
+ * Перебирает различные глобальные выравнивания в порядке невозрастания скора по одной заполненной матрице
+ * {@link NWAligner#fillMatrix}.
+ *
+ * Обратный ход рассматривается как поиск по графу состояний (i, j, M/I/D): для каждого перехода в предшественника
+ * считается потеря - насколько скор пути через него меньше значения в текущей ячейке. Значение ячейки - точная
+ * оценка лучшего продолжения, поэтому частичные пути, извлекаемые из очереди по суммарной потере, завершаются
+ * ровно в порядке убывания скора. Матрица не пересчитывается, следующее выравнивание строится лениво.
+ */
+public class AlignmentEnumerator implements Iterator<Alignment> {
+    private static final int M = NWAligner.M, I = NWAligner.I, D = NWAligner.D,
+            CELL = NWAligner.CELL;
+
+    private final String firstSeq, secondSeq;
+    private final int open, extend, m, maxLoss, best;
+    private final int[][] scoreRows;
+    private final int[] matrix;
+
+    private final PriorityQueue<Step> queue = new PriorityQueue<>();
+    private long order, expanded;
+    private Alignment next;
+
+    // Шаг обратного хода: ячейка (i, j) в состоянии state, операция, которой она была получена, и ссылка на
+    // шаг, из которого мы сюда пришли (то есть на следующую позицию выравнивания).
+    private static class Step implements Comparable<Step> {
+        final int i, j, state, loss;
+        final long order;
+        final char first, second;
+        final Step tail;
+
+        Step(int i, int j, int state, int loss, long order, char first, char second, Step tail) {
+            this.i = i;
+            this.j = j;
+            this.state = state;
+            this.loss = loss;
+            this.order = order;
+            this.first = first;
+            this.second = second;
+            this.tail = tail;
+        }
+
+        // При равной потере первым извлекается последний добавленный шаг: путь продолжается вглубь, и выравнивание
+        // с потерей L завершается за O(n + m) извлечений. При извлечении в порядке добавления очередь обходила бы
+        // в ширину все равноценные префиксы и росла экспоненциально.
+        @Override
+        public int compareTo(Step o) {
+            return loss != o.loss ? Integer.compare(loss, o.loss) : Long.compare(o.order, order);
+        }
+    }
+
+    public AlignmentEnumerator(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction) {
+        this(firstSeq, secondSeq, open, extend, scoreFunction, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxLoss максимальное отставание скора выравнивания от оптимального; 0 - только ко-оптимальные выравнивания
+     */
+    public AlignmentEnumerator(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction, int maxLoss) {
+        if (maxLoss < 0) {
+            throw new IllegalArgumentException("maxLoss should be non-negative");
+        }
+
+        this.firstSeq = firstSeq;
+        this.secondSeq = secondSeq;
+        this.open = open;
+        this.extend = extend;
+        this.maxLoss = maxLoss;
+        this.m = secondSeq.length() + 1;
+        this.scoreRows = NWAligner.scoreRows(firstSeq, secondSeq, scoreFunction);
+        this.matrix = NWAligner.fillMatrix(firstSeq, secondSeq, open, extend, scoreRows);
+
+        int i = firstSeq.length(), j = secondSeq.length(), bestScore = Integer.MIN_VALUE;
+
+        for (int state = 0; state < CELL; state++) {
+            if (isValid(i, j, state)) {
+                bestScore = Math.max(bestScore, value(i, j, state));
+            }
+        }
+        this.best = bestScore;
+
+        for (int state = CELL - 1; state >= 0; state--) {
+            if (isValid(i, j, state)) {
+                push(i, j, state, best - value(i, j, state), '\0', '\0', null);
+            }
+        }
+    }
+
+    public int getBestScore() {
+        return best;
+    }
+
+    // число незавершенных путей в очереди
+    int pending() {
+        return queue.size();
+    }
+
+    // число шагов, извлеченных из очереди с начала перебора
+    long expanded() {
+        return expanded;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Alignment next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Alignment result = next;
+        next = null;
+        return result;
+    }
+
+    private Alignment advance() {
+        Step step;
+
+        while ((step = queue.poll()) != null) {
+            int i = step.i, j = step.j;
+            expanded++;
+
+            // на границе матрицы остаются только пропуски, путь завершен
+            if (i == 0 || j == 0) {
+                return toAlignment(step);
+            }
+
+            int v = value(i, j, step.state);
+            char a = firstSeq.charAt(i - 1), b = secondSeq.charAt(j - 1);
+
+            switch (step.state) {
+                // предшественники добавляются в порядке, обратном предпочтению: из равноценных первым извлекается
+                // добавленный последним
+                case M: {
+                    int score_m = scoreRows[i - 1][j - 1];
+                    for (int t = CELL - 1; t >= 0; t--) {
+                        expand(step, i - 1, j - 1, t, v - value(i - 1, j - 1, t) - score_m, a, b);
+                    }
+                    break;
+                }
+                case I:
+                    expand(step, i, j - 1, D, v - value(i, j - 1, D) - open, '_', b);
+                    expand(step, i, j - 1, M, v - value(i, j - 1, M) - open, '_', b);
+                    expand(step, i, j - 1, I, v - value(i, j - 1, I) - extend, '_', b);
+                    break;
+                case D:
+                    expand(step, i - 1, j, D, v - value(i - 1, j, D) - open, a, '_');
+                    expand(step, i - 1, j, M, v - value(i - 1, j, M) - open, a, '_');
+                    expand(step, i - 1, j, I, v - value(i - 1, j, I) - extend, a, '_');
+                    break;
+            }
+        }
+
+        return null;
+    }
+
+    private void expand(Step step, int i, int j, int state, int loss, char first, char second) {
+        if (isValid(i, j, state)) {
+            push(i, j, state, step.loss + loss, first, second, step);
+        }
+    }
+
+    private void push(int i, int j, int state, int loss, char first, char second, Step tail) {
+        if (loss <= maxLoss) {
+            queue.add(new Step(i, j, state, loss, order++, first, second, tail));
+        }
+    }
+
+    private Alignment toAlignment(Step step) {
+        StringBuilder firstBuilder = new StringBuilder();
+        StringBuilder secondBuilder = new StringBuilder();
+
+        for (int i = 0; i < step.i; i++) {
+            firstBuilder.append(firstSeq.charAt(i));
+            secondBuilder.append('_');
+        }
+        for (int j = 0; j < step.j; j++) {
+            firstBuilder.append('_');
+            secondBuilder.append(secondSeq.charAt(j));
+        }
+        for (Step s = step; s.tail != null; s = s.tail) {
+            firstBuilder.append(s.first);
+            secondBuilder.append(s.second);
+        }
+
+        return new Alignment(best - step.loss, firstBuilder.toString(), secondBuilder.toString());
+    }
+
+    // В первой строке и первом столбце осмысленны только начальные пропуски (состояние I), в ячейке (0, 0) - M
+    private static boolean isValid(int i, int j, int state) {
+        if (i == 0 && j == 0) {
+            return state == M;
+        }
+        return (i != 0 && j != 0) || state == I;
+    }
+
+    private int value(int i, int j, int state) {
+        return matrix[(i * m + j) * CELL + state];
+    }
+}
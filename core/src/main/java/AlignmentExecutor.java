@@ -0,0 +1,185 @@
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Асинхронное выполнение множества независимых выравниваний.
+ *
+ * FIXED - обычный пул из числа процессоров потоков, каждая пара - отдельная задача.
+ * VIRTUAL - каждая задача выполняется в своем виртуальном потоке (Java 21+), а само заполнение матрицы ограничено
+ * семафором с числом разрешений, равным числу процессоров, чтобы вычисления не вытесняли друг друга.
+ *
+ * Маленькие пары (не больше tinyCells ячеек матрицы) можно собирать в пачки по batchSize и выполнять одной задачей:
+ * для них накладные расходы на планирование сопоставимы со временем выравнивания. Неполная пачка отправляется
+ * через maxBatchDelayMillis после добавления первой пары или при вызове flush(). По умолчанию пачек нет
+ * (batchSize = 1): пачка общая для всех отправителей и выполняется одним потоком, поэтому при неполной загрузке
+ * пары в ней ждут друг друга и хвост задержек растет (см. RunExecutorBenchmark). Пачки имеет смысл включать только
+ * для пакетной обработки, где важна пропускная способность.
+ */
+public class AlignmentExecutor implements AutoCloseable {
+    public enum Mode { FIXED, VIRTUAL }
+
+    private final int open, extend;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final ScheduledExecutorService timer;
+
+    private int batchSize = 1;
+    private long tinyCells = 64 * 64;
+    private long maxBatchDelayMillis = 1;
+
+    private List<Runnable> batch = new ArrayList<>();
+
+    public AlignmentExecutor(Mode mode, int open, int extend) {
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        this.open = open;
+        this.extend = extend;
+
+        if (mode == Mode.VIRTUAL) {
+            this.executor = newVirtualThreadExecutor();
+            this.permits = new Semaphore(processors);
+        } else {
+            this.executor = Executors.newFixedThreadPool(processors);
+            this.permits = null;
+        }
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alignment-batch-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    // Проект собирается под Java 8, поэтому фабрика виртуальных потоков ищется через рефлексию
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create virtual thread executor", e);
+        }
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setTinyCells(long tinyCells) {
+        this.tinyCells = tinyCells;
+    }
+
+    public void setMaxBatchDelayMillis(long maxBatchDelayMillis) {
+        this.maxBatchDelayMillis = maxBatchDelayMillis;
+    }
+
+    public CompletableFuture<Alignment> submit(String firstSeq, String secondSeq, BiFunction<Character, Character, Integer> scoreFunction) {
+        CompletableFuture<Alignment> result = new CompletableFuture<>();
+        Runnable job = () -> {
+            try {
+                result.complete(NWAligner.align(firstSeq, secondSeq, open, extend, scoreFunction));
+            } catch (Throwable e) {
+                // в том числе Error (OutOfMemoryError): результат не должен зависнуть, а остальные пары пачки - пропасть
+                result.completeExceptionally(e);
+            }
+        };
+
+        long cells = (long) (firstSeq.length() + 1) * (secondSeq.length() + 1);
+        if (batchSize <= 1 || cells > tinyCells) {
+            dispatch(job);
+            return result;
+        }
+
+        List<Runnable> full = null;
+        synchronized (this) {
+            batch.add(job);
+            if (batch.size() >= batchSize) {
+                full = batch;
+                batch = new ArrayList<>();
+            } else if (batch.size() == 1) {
+                List<Runnable> pending = batch;
+                timer.schedule(() -> flush(pending), maxBatchDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            dispatchBatch(full);
+        }
+        return result;
+    }
+
+    /**
+     * Немедленно отправляет на выполнение накопленную неполную пачку маленьких пар.
+     */
+    public void flush() {
+        List<Runnable> pending;
+        synchronized (this) {
+            pending = batch;
+        }
+        flush(pending);
+    }
+
+    private void flush(List<Runnable> pending) {
+        synchronized (this) {
+            // пачка уже отправлена (заполнилась или была сброшена раньше)
+            if (pending != batch || batch.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>();
+        }
+        dispatchBatch(pending);
+    }
+
+    private void dispatchBatch(List<Runnable> jobs) {
+        dispatch(() -> jobs.forEach(Runnable::run));
+    }
+
+    private void dispatch(Runnable task) {
+        if (permits == null) {
+            executor.execute(task);
+            return;
+        }
+
+        executor.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * Отправляет неполную пачку и ждет завершения всех задач. Если ожидание прервано, задачи продолжают выполняться
+     * (их результаты все равно будут получены), а флаг прерывания восстанавливается.
+     */
+    @Override
+    public void close() {
+        flush();
+        timer.shutdownNow();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
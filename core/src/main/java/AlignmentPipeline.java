@@ -0,0 +1,299 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Потоковое выравнивание пар последовательностей: parse -> validate -> align -> format -> write.
+ *
+ * Стадии связаны очередями ограниченного размера, у каждой стадии свое число потоков. Парсер дополнительно кладет
+ * результат каждой пары (CompletableFuture) в ограниченную очередь writer'а, поэтому пары печатаются в порядке входа,
+ * а в обработке одновременно находится не больше bufferSize пар: медленный вывод останавливает чтение входа,
+ * и потребление памяти не зависит от объема входных данных.
+ *
+ * Формат входа: по одной паре в строке, "seq1 seq2" или "id1 seq1 id2 seq2".
+ * Ошибка в паре (в том числе нехватка памяти под ее матрицу) выводится в errors и не останавливает остальные пары.
+ *
+ * Матрицы выравниваемых одновременно пар делят общий бюджет памяти (по умолчанию 3/4 свободной кучи на момент
+ * запуска): перед заполнением матрицы поток стадии align занимает нужное ей число мегабайт и ждет, пока их
+ * освободят другие потоки. Пара, матрица которой больше всего бюджета, отклоняется сразу.
+ */
+public class AlignmentPipeline {
+    private final char compound;
+    private final int open, extend;
+
+    private int bufferSize = 64;
+    private int validateThreads = 1, alignThreads = Runtime.getRuntime().availableProcessors(), formatThreads = 1;
+    // 0 - по свободной памяти при запуске run
+    private long memoryBudget;
+
+    // Пара последовательностей, проходящая через стадии; каждое поле заполняет своя стадия
+    static class Job {
+        final long index;
+        final String line;
+        final CompletableFuture<Job> result = new CompletableFuture<>();
+
+        String firstId, firstSeq, secondId, secondSeq;
+        BiFunction<Character, Character, Integer> scoreFunction;
+        Alignment alignment;
+        // результат стадии format: текст или запись для AlignmentStore
+        String text;
+        byte[] record;
+
+        Job(long index, String line) {
+            this.index = index;
+            this.line = line;
+        }
+    }
+
+    private static final Job END = new Job(-1, null);
+
+    // последняя стадия: получает пары в порядке входа (выравненные и, отдельно, пары с ошибками)
+    @FunctionalInterface
+    interface Output {
+        void write(Job job) throws IOException;
+    }
+
+    public AlignmentPipeline(char compound, int open, int extend) {
+        this.compound = compound;
+        this.open = open;
+        this.extend = extend;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public void setValidateThreads(int validateThreads) {
+        this.validateThreads = validateThreads;
+    }
+
+    public void setAlignThreads(int alignThreads) {
+        this.alignThreads = alignThreads;
+    }
+
+    public void setFormatThreads(int formatThreads) {
+        this.formatThreads = formatThreads;
+    }
+
+    /**
+     * Общий бюджет памяти под матрицы одновременно выравниваемых пар, в байтах.
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Читает пары из in, пока он не закончится, и пишет выравнивания в out в том же порядке.
+     * Пары с ошибками (неверный формат строки, алфавит, нехватка памяти) выводятся в errors и пропускаются.
+     *
+     * @return количество выведенных выравниваний
+     */
+    public long run(BufferedReader in, PrintWriter out, PrintWriter errors) throws IOException, InterruptedException {
+        long written = run(in, this::format, job -> {
+            out.print(job.text);
+            if (out.checkError()) {
+                throw new IOException("Unable to write alignment");
+            }
+        }, job -> { }, errors);
+        out.flush();
+        return written;
+    }
+
+    /**
+     * То же, что {@link #run(BufferedReader, PrintWriter, PrintWriter)}, но выравнивания дописываются в двоичное
+     * хранилище; номера пар в нем идут в порядке входа. Пары с ошибками записываются пустыми записями
+     * ({@link AlignmentStore.Writer#appendFailed}), поэтому номер пары в хранилище - номер непустой строки входа с нуля.
+     */
+    public long run(BufferedReader in, AlignmentStore.Writer store, PrintWriter errors) throws IOException, InterruptedException {
+        long written = run(in, this::encode, job -> store.append(job.record), job -> store.appendFailed(), errors);
+        store.flush();
+        return written;
+    }
+
+    private long run(BufferedReader in, Consumer<Job> format, Output output, Output failed, PrintWriter errors) throws IOException, InterruptedException {
+        BlockingQueue<Job> parsed = new ArrayBlockingQueue<>(bufferSize),
+                validated = new ArrayBlockingQueue<>(bufferSize),
+                aligned = new ArrayBlockingQueue<>(bufferSize);
+        BlockingQueue<Job> ordered = new ArrayBlockingQueue<>(bufferSize);
+
+        ExecutorService workers = Executors.newFixedThreadPool(1 + validateThreads + alignThreads + formatThreads);
+        CompletableFuture<Void> parser = new CompletableFuture<>();
+        long budget = memoryBudget > 0 ? memoryBudget : AlignmentDispatcher.availableMemory() / 4 * 3;
+        int megabytes = (int) Math.min(budget >> 20, Integer.MAX_VALUE);
+        Semaphore memory = new Semaphore(megabytes);
+
+        try {
+            workers.execute(() -> {
+                try {
+                    parse(in, parsed, ordered);
+                    parser.complete(null);
+                } catch (Exception e) {
+                    parser.completeExceptionally(e);
+                } finally {
+                    putQuietly(ordered, END);
+                }
+            });
+            startStage(workers, validateThreads, parsed, validated, this::validate);
+            startStage(workers, alignThreads, validated, aligned, job -> align(job, memory, megabytes));
+            startStage(workers, formatThreads, aligned, null, format);
+
+            long written = 0;
+            for (Job job = ordered.take(); job != END; job = ordered.take()) {
+                try {
+                    output.write(job.result.get());
+                    written++;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    errors.printf("[error] Pair %d: %s%n", job.index + 1, cause.getMessage() != null ? cause.getMessage() : cause.toString());
+                    failed.write(job);
+                }
+            }
+
+            try {
+                parser.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+            return written;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void parse(BufferedReader in, BlockingQueue<Job> parsed, BlockingQueue<Job> ordered) throws IOException, InterruptedException {
+        long index = 0;
+        try {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                Job job = new Job(index++, line);
+                // сначала очередь writer'а: если вывод не успевает, чтение входа здесь останавливается
+                ordered.put(job);
+                parsed.put(job);
+            }
+        } finally {
+            parsed.put(END);
+        }
+    }
+
+    // Запускает threads потоков стадии: каждый берет пары из in, обрабатывает и передает в out.
+    // Последний завершившийся поток стадии передает признак конца следующей стадии.
+    private void startStage(ExecutorService workers, int threads, BlockingQueue<Job> in, BlockingQueue<Job> out, Consumer<Job> stage) {
+        AtomicInteger running = new AtomicInteger(threads);
+
+        for (int t = 0; t < threads; t++) {
+            workers.execute(() -> {
+                try {
+                    for (Job job = in.take(); job != END; job = in.take()) {
+                        if (!job.result.isDone()) {
+                            try {
+                                stage.accept(job);
+                            } catch (Throwable e) {
+                                // в том числе OutOfMemoryError: иначе writer навсегда повиснет на этой паре
+                                job.result.completeExceptionally(e);
+                            }
+                        }
+                        if (out != null) {
+                            out.put(job);
+                        }
+                    }
+                    in.put(END);
+                    if (running.decrementAndGet() == 0 && out != null) {
+                        out.put(END);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+
+    private void validate(Job job) {
+        String[] tokens = job.line.trim().split("\\s+");
+
+        if (tokens.length == 2) {
+            job.firstId = "seq1";
+            job.firstSeq = tokens[0];
+            job.secondId = "seq2";
+            job.secondSeq = tokens[1];
+        } else if (tokens.length == 4) {
+            job.firstId = tokens[0];
+            job.firstSeq = tokens[1];
+            job.secondId = tokens[2];
+            job.secondSeq = tokens[3];
+        } else {
+            throw new IllegalArgumentException("Invalid pair format, expected 'seq1 seq2' or 'id1 seq1 id2 seq2'");
+        }
+
+        if (compound == 'a' && NWUtils.isAminoAcidsSequence(job.firstSeq) && NWUtils.isAminoAcidsSequence(job.secondSeq)) {
+            job.scoreFunction = NWUtils::blosum62;
+        } else if (compound == 'n' && NWUtils.isNucleotideSequence(job.firstSeq) && NWUtils.isNucleotideSequence(job.secondSeq)) {
+            job.scoreFunction = NWUtils::dnaFull;
+        } else {
+            throw new IllegalArgumentException("Invalid input sequence");
+        }
+    }
+
+    // memory - свободная часть бюджета в мегабайтах (budget - весь бюджет); мегабайты матрицы заняты, пока она заполняется
+    private void align(Job job, Semaphore memory, int budget) {
+        long required = AlignmentDispatcher.fullAlignmentBytes(job.firstSeq.length(), job.secondSeq.length());
+        long megabytes = Math.max(1, (required + (1 << 20) - 1) >> 20);
+        // такая пара не дождется памяти никогда
+        if (megabytes > budget) {
+            throw new IllegalArgumentException(String.format("Full alignment of %dx%d requires %d MB, memory budget is %d MB",
+                    job.firstSeq.length(), job.secondSeq.length(), megabytes, budget));
+        }
+
+        try {
+            memory.acquire((int) megabytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Alignment was interrupted");
+        }
+        try {
+            job.alignment = NWAligner.align(job.firstSeq, job.secondSeq, open, extend, job.scoreFunction);
+        } finally {
+            memory.release((int) megabytes);
+        }
+    }
+
+    private void format(Job job) {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+
+        out.printf("Pair: %s / %s%n", job.firstId, job.secondId);
+        NWAligner.printAlignmentAndScore(job.alignment.getScore(), job.alignment.getFirstSeq(), job.alignment.getSecondSeq(), out);
+        out.flush();
+
+        job.text = text.toString();
+        job.result.complete(job);
+    }
+
+    private void encode(Job job) {
+        job.record = AlignmentStore.encode(job.firstId, job.secondId, job.alignment);
+        job.result.complete(job);
+    }
+
+    private static void putQuietly(BlockingQueue<Job> queue, Job job) {
+        try {
+            queue.put(job);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
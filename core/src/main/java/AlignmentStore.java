@@ -0,0 +1,472 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Двоичное хранилище результатов выравнивания: файл записей и индекс смещений рядом с ним (path + ".idx").
+ *
+ * Записи только дописываются в конец. Номер пары - порядковый номер записи (с нуля), индекс - массив long
+ * смещений записей, поэтому {@link Reader} находит запись по номеру за O(1): оба файла отображаются в память,
+ * текст не разбирается. Индекс дописывается только после самих записей, так что он никогда не указывает на
+ * недописанную запись. Пара, которую не удалось выровнять, занимает свой номер пустой записью
+ * ({@link Writer#appendFailed}), чтобы номера следующих пар не сдвигались.
+ *
+ * Запись: score (4 байта, его можно прочитать без разбора остальной записи), координаты выровненных участков
+ * [start, end) обеих последовательностей, идентификаторы, выравнивание в виде CIGAR (длина << 2 | операция) и сами
+ * участки без пропусков, по которым выравнивание в 80 столбцов восстанавливается при чтении ({@link Record#toAlignment}).
+ * Числа, кроме score, записаны в varint: для коротких операций CIGAR это один байт.
+ */
+public class AlignmentStore {
+    private static final int MAGIC = 0x4E574153; // "NWAS"
+    private static final int VERSION = 1;
+    private static final int HEADER = 2 * Integer.BYTES;
+
+    // операции CIGAR: M - пара символов, I - пропуск в первой последовательности, D - пропуск во второй
+    private static final int CIGAR_M = 0, CIGAR_I = 1, CIGAR_D = 2;
+    private static final int OP_BITS = 2, OP_MASK = (1 << OP_BITS) - 1;
+    private static final String CIGAR_OPS = "MID";
+
+    private static final char GAP = '_';
+    private static final int INDEX_BUFFER = 4096;
+
+    public static Path indexPath(Path path) {
+        return Paths.get(path + ".idx");
+    }
+
+    /**
+     * Кодирует выравнивание глобальной пары: участки - последовательности целиком.
+     */
+    public static byte[] encode(String firstId, String secondId, Alignment alignment) {
+        String first = alignment.getFirstSeq(), second = alignment.getSecondSeq();
+        byte[] firstSeq = new byte[first.length()], secondSeq = new byte[second.length()];
+        int firstLength = 0, secondLength = 0;
+        int[] cigar = new int[16];
+        int ops = 0;
+
+        for (int k = 0; k < first.length(); k++) {
+            char a = first.charAt(k), b = second.charAt(k);
+            int op = a == GAP ? CIGAR_I : b == GAP ? CIGAR_D : CIGAR_M;
+            if (a != GAP) {
+                firstSeq[firstLength++] = (byte) a;
+            }
+            if (b != GAP) {
+                secondSeq[secondLength++] = (byte) b;
+            }
+
+            if (ops > 0 && (cigar[ops - 1] & OP_MASK) == op) {
+                cigar[ops - 1] += 1 << OP_BITS;
+            } else {
+                if (ops == cigar.length) {
+                    cigar = Arrays.copyOf(cigar, 2 * ops);
+                }
+                cigar[ops++] = 1 << OP_BITS | op;
+            }
+        }
+
+        byte[] firstIdBytes = firstId.getBytes(StandardCharsets.UTF_8),
+               secondIdBytes = secondId.getBytes(StandardCharsets.UTF_8);
+        // varint занимает не больше 5 байт
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + 5 * (7 + ops)
+                + firstIdBytes.length + secondIdBytes.length + firstLength + secondLength);
+
+        record.putInt(alignment.getScore());
+        putVarint(record, 0);
+        putVarint(record, firstLength);
+        putVarint(record, 0);
+        putVarint(record, secondLength);
+        putVarint(record, firstIdBytes.length);
+        record.put(firstIdBytes);
+        putVarint(record, secondIdBytes.length);
+        record.put(secondIdBytes);
+        putVarint(record, ops);
+        for (int k = 0; k < ops; k++) {
+            putVarint(record, cigar[k]);
+        }
+        record.put(firstSeq, 0, firstLength);
+        record.put(secondSeq, 0, secondLength);
+
+        return Arrays.copyOf(record.array(), record.position());
+    }
+
+    // целое без знака по 7 бит в байте, старший бит - признак продолжения
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Дописывает записи в хранилище. Если файлы уже есть, продолжает их: номера новых пар идут после старых.
+     */
+    public static class Writer implements Closeable {
+        private final DataOutputStream data, index;
+        private final long[] pending = new long[INDEX_BUFFER];
+        private int pendingCount;
+        private long position, count;
+
+        public Writer(Path path) throws IOException {
+            Path indexPath = indexPath(path);
+            boolean exists = Files.exists(path) && Files.size(path) > 0;
+
+            if (exists) {
+                try (DataInputStream header = new DataInputStream(Files.newInputStream(path))) {
+                    if (header.readInt() != MAGIC || header.readInt() != VERSION) {
+                        throw new IOException("Not an alignment store: " + path);
+                    }
+                }
+                // без индекса номера новых пар начались бы с 0 и совпали с номерами уже записанных
+                if (!Files.exists(indexPath)) {
+                    throw new IOException("Missing alignment store index: " + indexPath);
+                }
+                long indexSize = Files.size(indexPath);
+                if (indexSize % Long.BYTES != 0) {
+                    throw new IOException("Corrupted alignment store index: " + indexPath);
+                }
+                position = Files.size(path);
+                count = indexSize / Long.BYTES;
+            }
+
+            data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile(), true), 1 << 16));
+            try {
+                index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexPath.toFile(), exists), 1 << 16));
+            } catch (IOException | RuntimeException e) {
+                try {
+                    data.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+
+            if (!exists) {
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                position = HEADER;
+            }
+        }
+
+        /**
+         * @return номер пары
+         */
+        public synchronized long append(String firstId, String secondId, Alignment alignment) throws IOException {
+            return append(encode(firstId, secondId, alignment));
+        }
+
+        /**
+         * Дописывает запись, закодированную {@link #encode} (например, в другом потоке).
+         *
+         * @return номер пары
+         */
+        public synchronized long append(byte[] record) throws IOException {
+            data.write(record);
+            pending[pendingCount++] = position;
+            position += record.length;
+
+            if (pendingCount == pending.length) {
+                flush();
+            }
+            return count++;
+        }
+
+        /**
+         * Занимает номер пары, которую не удалось выровнять: пустая запись, {@link Reader#isFailed} для нее true.
+         *
+         * @return номер пары
+         */
+        public synchronized long appendFailed() throws IOException {
+            return append(new byte[0]);
+        }
+
+        public synchronized long size() {
+            return count;
+        }
+
+        // сначала записи, потом указывающие на них смещения
+        public synchronized void flush() throws IOException {
+            data.flush();
+            for (int k = 0; k < pendingCount; k++) {
+                index.writeLong(pending[k]);
+            }
+            pendingCount = 0;
+            index.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                data.close();
+                index.close();
+            }
+        }
+    }
+
+    /**
+     * Чтение хранилища через отображение файлов в память. Файл записей больше 2 ГБ отображается несколькими
+     * сегментами, границы сегментов проходят по границам записей.
+     */
+    public static class Reader implements Closeable {
+        private final FileChannel dataChannel;
+        private final long dataSize;
+        private final LongBuffer index;
+        private final long[] segmentStarts;
+        private final MappedByteBuffer[] segments;
+
+        public Reader(Path path) throws IOException {
+            try (FileChannel indexChannel = FileChannel.open(indexPath(path), StandardOpenOption.READ)) {
+                if (indexChannel.size() > Integer.MAX_VALUE || indexChannel.size() % Long.BYTES != 0) {
+                    throw new IOException("Unsupported alignment store index: " + indexPath(path));
+                }
+                index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size()).asLongBuffer();
+            }
+
+            dataChannel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                dataSize = dataChannel.size();
+
+                List<Long> starts = new ArrayList<>();
+                List<MappedByteBuffer> buffers = new ArrayList<>();
+                for (long start = 0; start < dataSize; ) {
+                    long end = dataSize;
+                    if (end - start > Integer.MAX_VALUE) {
+                        end = lastOffsetBefore(start + Integer.MAX_VALUE);
+                        if (end <= start) {
+                            throw new IOException("Alignment record is too large at offset " + start);
+                        }
+                    }
+                    starts.add(start);
+                    buffers.add(dataChannel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                    start = end;
+                }
+
+                segmentStarts = new long[starts.size()];
+                for (int s = 0; s < segmentStarts.length; s++) {
+                    segmentStarts[s] = starts.get(s);
+                }
+                segments = buffers.toArray(new MappedByteBuffer[0]);
+
+                if (dataSize < HEADER || segments[0].getInt(0) != MAGIC || segments[0].getInt(Integer.BYTES) != VERSION) {
+                    throw new IOException("Not an alignment store: " + path);
+                }
+            } catch (IOException | RuntimeException e) {
+                // заголовок не прошел проверку или отображение не удалось: файл не должен остаться открытым
+                try {
+                    dataChannel.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+        }
+
+        // наибольшее смещение записи, не превосходящее limit
+        private long lastOffsetBefore(long limit) {
+            int lo = 0, hi = index.limit() - 1, found = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (index.get(mid) <= limit) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return found < 0 ? 0 : index.get(found);
+        }
+
+        public long size() {
+            return index.limit();
+        }
+
+        /**
+         * Пару не удалось выровнять (записана {@link Writer#appendFailed}): ее скора и выравнивания нет.
+         */
+        public boolean isFailed(long pairId) {
+            checkPairId(pairId);
+            long end = pairId + 1 < index.limit() ? index.get((int) pairId + 1) : dataSize;
+            return end == index.get((int) pairId);
+        }
+
+        /**
+         * Скор пары без декодирования остальной записи - для быстрой фильтрации.
+         */
+        public int score(long pairId) {
+            return record(pairId).getInt();
+        }
+
+        public Record get(long pairId) {
+            ByteBuffer buffer = record(pairId);
+            Record record = new Record();
+
+            record.score = buffer.getInt();
+            record.firstStart = getVarint(buffer);
+            record.firstEnd = getVarint(buffer);
+            record.secondStart = getVarint(buffer);
+            record.secondEnd = getVarint(buffer);
+            record.firstId = readString(buffer, getVarint(buffer), StandardCharsets.UTF_8);
+            record.secondId = readString(buffer, getVarint(buffer), StandardCharsets.UTF_8);
+            record.cigar = new int[getVarint(buffer)];
+            for (int k = 0; k < record.cigar.length; k++) {
+                record.cigar[k] = getVarint(buffer);
+            }
+            record.firstSeq = readString(buffer, record.firstEnd - record.firstStart, StandardCharsets.ISO_8859_1);
+            record.secondSeq = readString(buffer, record.secondEnd - record.secondStart, StandardCharsets.ISO_8859_1);
+
+            return record;
+        }
+
+        private ByteBuffer record(long pairId) {
+            if (isFailed(pairId)) {
+                throw new IllegalStateException("Pair " + pairId + " failed to align and has no record");
+            }
+            long offset = index.get((int) pairId);
+
+            int segment = segments.length - 1;
+            while (segmentStarts[segment] > offset) {
+                segment--;
+            }
+
+            ByteBuffer buffer = segments[segment].duplicate();
+            buffer.position((int) (offset - segmentStarts[segment]));
+            return buffer;
+        }
+
+        private void checkPairId(long pairId) {
+            if (pairId < 0 || pairId >= index.limit()) {
+                throw new IndexOutOfBoundsException("No pair " + pairId + " in alignment store of " + index.limit() + " pairs");
+            }
+        }
+
+        private static String readString(ByteBuffer buffer, int length, Charset charset) {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, charset);
+        }
+
+        @Override
+        public void close() throws IOException {
+            dataChannel.close();
+        }
+    }
+
+    public static class Record {
+        private String firstId, secondId, firstSeq, secondSeq;
+        private int score, firstStart, firstEnd, secondStart, secondEnd;
+        private int[] cigar;
+
+        public String getFirstId() {
+            return firstId;
+        }
+
+        public String getSecondId() {
+            return secondId;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public int getFirstStart() {
+            return firstStart;
+        }
+
+        public int getFirstEnd() {
+            return firstEnd;
+        }
+
+        public int getSecondStart() {
+            return secondStart;
+        }
+
+        public int getSecondEnd() {
+            return secondEnd;
+        }
+
+        /**
+         * Выровненный участок первой последовательности без пропусков.
+         */
+        public String getFirstSeq() {
+            return firstSeq;
+        }
+
+        public String getSecondSeq() {
+            return secondSeq;
+        }
+
+        public String getCigar() {
+            StringBuilder text = new StringBuilder();
+            for (int op : cigar) {
+                text.append(op >>> OP_BITS).append(CIGAR_OPS.charAt(op & OP_MASK));
+            }
+            return text.toString();
+        }
+
+        /**
+         * Восстанавливает выравнивание с пропусками по CIGAR.
+         */
+        public Alignment toAlignment() {
+            StringBuilder first = new StringBuilder(), second = new StringBuilder();
+            int i = 0, j = 0;
+
+            for (int op : cigar) {
+                for (int k = op >>> OP_BITS; k > 0; k--) {
+                    switch (op & OP_MASK) {
+                        case CIGAR_M:
+                            first.append(firstSeq.charAt(i++));
+                            second.append(secondSeq.charAt(j++));
+                            break;
+                        case CIGAR_I:
+                            first.append(GAP);
+                            second.append(secondSeq.charAt(j++));
+                            break;
+                        default:
+                            first.append(firstSeq.charAt(i++));
+                            second.append(GAP);
+                    }
+                }
+            }
+
+            return new Alignment(score, first.toString(), second.toString());
+        }
+
+        /**
+         * Печатает пару в том же виде, что и текстовый вывод {@link AlignmentPipeline}.
+         */
+        public void print(PrintWriter out) {
+            Alignment alignment = toAlignment();
+            out.printf("Pair: %s / %s%n", firstId, secondId);
+            NWAligner.printAlignmentAndScore(alignment.getScore(), alignment.getFirstSeq(), alignment.getSecondSeq(), out);
+        }
+    }
+}
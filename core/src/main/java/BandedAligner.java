@@ -0,0 +1,128 @@
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Скор выравнивания (тот же, что у {@link NWAligner#alignmentScore}) по полосе диагоналей матрицы.
+ *
+ * Считаются только ячейки (i, j), для которых j - i лежит в [min(0, m - n) - w, max(0, m - n) + w].
+ * Любой путь, выходящий из полосы, содержит не меньше |n - m| + 2(w + 1) пропусков, поэтому его скор ограничен сверху
+ * (см. {@link #outsideBound}). Если скор внутри полосы не меньше этой границы, он оптимален; иначе полоса удваивается.
+ * Для похожих последовательностей это O((|n - m| + w) * n) вместо O(n * m).
+ */
+public class BandedAligner {
+    private static final int M = NWAligner.M, I = NWAligner.I, D = NWAligner.D,
+            CELL = NWAligner.CELL;
+    // значение ячеек вне полосы: достаточно мало и не переполняется при добавлении штрафов
+    private static final int NEG = Integer.MIN_VALUE / 4;
+
+    public static int score(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction, int band) {
+        int n = firstSeq.length(), m = secondSeq.length();
+        if (m == 0) {
+            return NWAligner.affineScore(firstSeq, secondSeq, open, extend, scoreFunction);
+        }
+        int smax = maxScore(firstSeq, secondSeq, scoreFunction);
+        // скоры замен считаются один раз на все ширины полосы
+        int[][] scoreRows = NWAligner.scoreRows(firstSeq, secondSeq, scoreFunction);
+
+        for (int w = Math.max(1, band); ; w *= 2) {
+            int score = scoreInBand(firstSeq, secondSeq, open, extend, scoreRows, w);
+            if (w >= Math.max(n, m) || score >= outsideBound(n, m, open, extend, smax, w)) {
+                return score;
+            }
+        }
+    }
+
+    /**
+     * Число ячеек, которые считает полоса ширины w: оценка стоимости для {@link AlignmentDispatcher}.
+     */
+    static long cells(int n, int m, int w) {
+        return (long) n * Math.min(m + 1, Math.abs(n - m) + 2 * w + 1);
+    }
+
+    // Верхняя граница скора пути, выходящего из полосы: p пар символов со скором не больше smax и
+    // n + m - 2p пропусков со штрафом не больше max(open, extend) каждый, p <= min(n, m) - (w + 1)
+    static long outsideBound(int n, int m, int open, int extend, int smax, int w) {
+        long pairs = Math.min(n, m) - (w + 1L);
+        if (pairs < 0) {
+            return Long.MIN_VALUE;
+        }
+        long gap = Math.max(open, extend);
+        long p = smax - 2 * gap > 0 ? pairs : 0;
+        return p * smax + (n + m - 2 * p) * gap;
+    }
+
+    private static int maxScore(String firstSeq, String secondSeq, BiFunction<Character, Character, Integer> scoreFunction) {
+        Set<Character> first = new HashSet<>(), second = new HashSet<>();
+        firstSeq.chars().forEach(ch -> first.add((char) ch));
+        secondSeq.chars().forEach(ch -> second.add((char) ch));
+
+        int smax = Integer.MIN_VALUE;
+        for (char a : first) {
+            for (char b : second) {
+                smax = Math.max(smax, scoreFunction.apply(a, b));
+            }
+        }
+        return smax;
+    }
+
+    private static int max(int a, int b, int c) {
+        return Math.max(a, Math.max(b, c));
+    }
+
+    // scoreRows - скоры замен по строкам ({@link NWAligner#scoreRows}), вторая последовательность не пустая
+    static int scoreInBand(String firstSeq, String secondSeq, int open, int extend, int[][] scoreRows, int w) {
+        int n = firstSeq.length() + 1,
+            m = secondSeq.length() + 1,
+            lo = Math.min(0, m - n) - w,
+            hi = Math.max(0, m - n) + w,
+            inf = 2 * open + (n + m) * extend + 1;
+
+        // строки хранятся целиком (m + 1 ячейка, последняя - граница справа), считается только полоса
+        int[] prev = new int[(m + 1) * CELL], cur = new int[(m + 1) * CELL];
+
+        prev[M] = 0;
+        prev[D] = prev[I] = inf;
+        for (int j = 1; j <= m; j++) {
+            int cell = j * CELL;
+            if (j < m && j <= hi) {
+                prev[cell + M] = prev[cell + D] = inf;
+                prev[cell + I] = open + (j - 1) * extend;
+            } else {
+                prev[cell + M] = prev[cell + I] = prev[cell + D] = NEG;
+            }
+        }
+
+        for (int i = 1; i < n; i++) {
+            int[] scores = scoreRows[i - 1];
+            int jlo = Math.max(1, i + lo), jhi = Math.min(m - 1, i + hi);
+
+            // ячейка слева от полосы: граница матрицы (если попадает в полосу) или "минус бесконечность"
+            int left = (jlo - 1) * CELL;
+            if (jlo == 1 && i + lo <= 0) {
+                cur[left + M] = cur[left + D] = inf;
+                cur[left + I] = open + (i - 1) * extend;
+            } else {
+                cur[left + M] = cur[left + I] = cur[left + D] = NEG;
+            }
+
+            for (int j = jlo, cell = jlo * CELL; j <= jhi; j++, cell += CELL) {
+                int l = cell - CELL;
+                cur[cell + M] = max(prev[l + M], prev[l + I], prev[l + D]) + scores[j - 1];
+                cur[cell + I] = max(cur[l + I] + extend, cur[l + M] + open, cur[l + D] + open);
+                cur[cell + D] = max(prev[cell + I] + extend, prev[cell + M] + open, prev[cell + D] + open);
+            }
+
+            // ячейка справа от полосы: ее прочитает следующая строка как верхнего соседа
+            int right = (jhi + 1) * CELL;
+            cur[right + M] = cur[right + I] = cur[right + D] = NEG;
+
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+
+        int last = (m - 1) * CELL;
+        return max(prev[last + I], prev[last + D], prev[last + M]);
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Расстояние редактирования (Левенштейна) бит-параллельным алгоритмом Майерса.
+ *
+ * Столбец матрицы расстояний хранится как два битовых вектора вертикальных разностей соседних строк
+ * (Pv - разность +1, Mv - разность -1), по 64 строки в одном long. Следующий столбец считается несколькими
+ * побитовыми операциями на блок, поэтому сложность O(ceil(m / 64) * n) вместо O(m * n) у полной матрицы.
+ * Длинные последовательности разбиваются на блоки, разность на границе блоков передается через hin/hout.
+ */
+public class MyersEditDistance {
+    private static final int WORD = 64;
+    private static final long HIGH_BIT = 1L << (WORD - 1);
+    private static final int ASCII = 128;
+
+    public static int distance(String firstSeq, String secondSeq) {
+        // шаблон (строки матрицы) - более короткая последовательность, так меньше блоков
+        String pattern = firstSeq.length() <= secondSeq.length() ? firstSeq : secondSeq,
+               text = pattern == firstSeq ? secondSeq : firstSeq;
+        int m = pattern.length();
+
+        if (m == 0) {
+            return text.length();
+        }
+
+        int blocks = (m + WORD - 1) / WORD;
+        long lastBit = 1L << ((m - 1) % WORD);
+
+        // peq[c][b] - биты строк блока b, в которых в шаблоне стоит символ c (символы вне ASCII - в отдельной таблице)
+        long[][] peq = new long[ASCII][];
+        Map<Character, long[]> otherPeq = new HashMap<>();
+        for (int i = 0; i < m; i++) {
+            char c = pattern.charAt(i);
+            long[] eqs = c < ASCII ? peq[c] : otherPeq.get(c);
+            if (eqs == null) {
+                eqs = new long[blocks];
+                if (c < ASCII) {
+                    peq[c] = eqs;
+                } else {
+                    otherPeq.put(c, eqs);
+                }
+            }
+            eqs[i / WORD] |= 1L << (i % WORD);
+        }
+
+        // первый столбец D[i][0] = i: все вертикальные разности +1
+        long[] pv = new long[blocks], mv = new long[blocks];
+        Arrays.fill(pv, -1L);
+
+        int score = m;
+        for (int j = 0; j < text.length(); j++) {
+            char c = text.charAt(j);
+            long[] eqs = c < ASCII ? peq[c] : otherPeq.get(c);
+            // первая строка D[0][j] = j: горизонтальная разность на входе первого блока +1
+            int h = 1;
+
+            for (int b = 0; b < blocks; b++) {
+                long eq = eqs == null ? 0 : eqs[b];
+                long pvb = pv[b], mvb = mv[b];
+
+                long xv = eq | mvb;
+                if (h < 0) {
+                    eq |= 1;
+                }
+                long xh = (((eq & pvb) + pvb) ^ pvb) | eq;
+                long ph = mvb | ~(xh | pvb);
+                long mh = pvb & xh;
+
+                long out = b == blocks - 1 ? lastBit : HIGH_BIT;
+                int hout = (ph & out) != 0 ? 1 : (mh & out) != 0 ? -1 : 0;
+
+                ph <<= 1;
+                mh <<= 1;
+                if (h < 0) {
+                    mh |= 1;
+                } else if (h > 0) {
+                    ph |= 1;
+                }
+
+                pv[b] = mh | ~(xv | ph);
+                mv[b] = ph & xv;
+                h = hout;
+            }
+
+            score += h;
+        }
+
+        return score;
+    }
+}
@@ -0,0 +1,263 @@
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static java.lang.Math.min;
+
+/**
+ * Выравнивание Нидлмана-Вунша с аффинными штрафами за пропуски (open - открытие, extend - продолжение).
+ * Линейный штраф gap - частный случай open = extend = gap.
+ */
+public class NWAligner {
+    private static final int MAX_CHARS_PER_LINE = 80;
+
+    @FunctionalInterface
+    interface ScoreFunction {
+        int apply(int [][]arr, int i, int j);
+    }
+
+    // Матрицы M, I, D хранятся в одном плоском массиве: ячейка (i, j) занимает CELL соседних элементов
+    // с индексами (i * m + j) * CELL + M/I/D, поэтому при пересчете ячейки все три значения лежат рядом в памяти.
+    static final int M = 0, I = 1, D = 2, CELL = 3;
+
+    private static int[] initMatrix(int n, int m, int open, int extend) {
+        if ((long) n * m * CELL > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Sequences are too long to be aligned: " + (n - 1) + "x" + (m - 1));
+        }
+
+        int[] matrix = new int[n * m * CELL];
+        int inf = 2 * open + (n + m) * extend + 1;
+
+        matrix[M] = 0;
+        matrix[D] = matrix[I] = inf;
+
+        for (int i = 1; i < n; i++) {
+            int cell = i * m * CELL;
+            matrix[cell + M] = matrix[cell + D] = inf;
+            matrix[cell + I] = open + (i - 1) * extend;
+        }
+
+        for (int j = 1; j < m; j++) {
+            int cell = j * CELL;
+            matrix[cell + M] = matrix[cell + D] = inf;
+            matrix[cell + I] = open + (j - 1) * extend;
+        }
+
+        return matrix;
+    }
+
+    private static int max(int a, int b, int c) {
+        return Math.max(a, Math.max(b, c));
+    }
+
+    /**
+     * Скоры замен по строкам матрицы: rows[i - 1][j - 1] = scoreFunction(firstSeq[i - 1], secondSeq[j - 1]).
+     * Строки одинаковых символов firstSeq общие, поэтому scoreFunction (с упаковкой Character и поиском по таблице)
+     * вызывается (размер алфавита) * m раз, а не n * m, и внутренний цикл заполнения читает только int[].
+     */
+    static int[][] scoreRows(String firstSeq, String secondSeq, BiFunction<Character, Character, Integer> scoreFunction) {
+        Map<Character, int[]> rowByResidue = new HashMap<>();
+        int[][] rows = new int[firstSeq.length()][];
+
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = rowByResidue.computeIfAbsent(firstSeq.charAt(i), a -> {
+                int[] row = new int[secondSeq.length()];
+                for (int j = 0; j < row.length; j++) {
+                    row[j] = scoreFunction.apply(a, secondSeq.charAt(j));
+                }
+                return row;
+            });
+        }
+        return rows;
+    }
+
+    static int[] fillMatrix(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction) {
+        return fillMatrix(firstSeq, secondSeq, open, extend, scoreRows(firstSeq, secondSeq, scoreFunction));
+    }
+
+    // то же по уже посчитанным скорам замен (они нужны и после заполнения, например в AlignmentEnumerator)
+    static int[] fillMatrix(String firstSeq, String secondSeq, int open, int extend, int[][] scoreRows) {
+        int n = firstSeq.length() + 1,
+            m = secondSeq.length() + 1,
+            rowSize = m * CELL;
+
+        int[] matrix = initMatrix(n, m, open, extend);
+
+        for (int i = 1; i < n; i++) {
+            int[] scores = scoreRows[i - 1];
+            // cell - текущая ячейка (i, j), left - (i, j - 1), up - (i - 1, j), diag - (i - 1, j - 1)
+            for (int j = 1, cell = i * rowSize + CELL; j < m; j++, cell += CELL) {
+                int left = cell - CELL, up = cell - rowSize, diag = up - CELL;
+                int score_m = scores[j - 1];
+                matrix[cell + M] = max(matrix[diag + M], matrix[diag + I], matrix[diag + D]) + score_m;
+                matrix[cell + I] = max(matrix[left + I] + extend, matrix[left + M] + open, matrix[left + D] + open);
+                matrix[cell + D] = max(matrix[up + I] + extend, matrix[up + M] + open, matrix[up + D] + open);
+            }
+        }
+
+        return matrix;
+    }
+
+    static boolean isUnitCost(int open, int extend, BiFunction<Character, Character, Integer> scoreFunction) {
+        return scoreFunction == NWUtils.UNIT_COST && open == -1 && extend == -1;
+    }
+
+    /**
+     * Считает только скор выравнивания (тот же, что печатает alignSequences), храня две строки матрицы вместо всей матрицы.
+     * Для единичной стоимости ({@link NWUtils#UNIT_COST}, open = extend = -1) используется бит-параллельный
+     * {@link MyersEditDistance}.
+     */
+    public static int alignmentScore(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction) {
+        if (isUnitCost(open, extend, scoreFunction)) {
+            return -MyersEditDistance.distance(firstSeq, secondSeq);
+        }
+        return affineScore(firstSeq, secondSeq, open, extend, scoreFunction);
+    }
+
+    static int affineScore(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction) {
+        int n = firstSeq.length() + 1,
+            m = secondSeq.length() + 1,
+            rowSize = m * CELL,
+            inf = 2 * open + (n + m) * extend + 1;
+
+        int[] prev = new int[rowSize], cur = new int[rowSize];
+        int[][] scoreRows = scoreRows(firstSeq, secondSeq, scoreFunction);
+
+        prev[M] = 0;
+        prev[D] = prev[I] = inf;
+        for (int j = 1; j < m; j++) {
+            prev[j * CELL + M] = prev[j * CELL + D] = inf;
+            prev[j * CELL + I] = open + (j - 1) * extend;
+        }
+
+        for (int i = 1; i < n; i++) {
+            int[] scores = scoreRows[i - 1];
+            cur[M] = cur[D] = inf;
+            cur[I] = open + (i - 1) * extend;
+
+            for (int j = 1, cell = CELL; j < m; j++, cell += CELL) {
+                int left = cell - CELL;
+                int score_m = scores[j - 1];
+                cur[cell + M] = max(prev[left + M], prev[left + I], prev[left + D]) + score_m;
+                cur[cell + I] = max(cur[left + I] + extend, cur[left + M] + open, cur[left + D] + open);
+                cur[cell + D] = max(prev[cell + I] + extend, prev[cell + M] + open, prev[cell + D] + open);
+            }
+
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+
+        int last = (m - 1) * CELL;
+        return max(prev[last + I], prev[last + D], prev[last + M]);
+    }
+
+    public static void alignSequences(String firstSeq, String secondSeq, int open, int extend, PrintWriter out, BiFunction<Character, Character, Integer> scoreFunction) {
+        Alignment alignment = align(firstSeq, secondSeq, open, extend, scoreFunction);
+        printAlignmentAndScore(alignment.getScore(), alignment.getFirstSeq(), alignment.getSecondSeq(), out);
+    }
+
+    public static Alignment align(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction) {
+        int n = firstSeq.length() + 1,
+            m = secondSeq.length() + 1;
+
+        int[] matrix = fillMatrix(firstSeq, secondSeq, open, extend, scoreFunction);
+
+        StringBuilder firstBuilder = new StringBuilder();
+        StringBuilder secondBuilder = new StringBuilder();
+        int i = n - 1, j = m - 1, score;
+
+        while(i > 0 || j > 0) {
+            int cell = (i * m + j) * CELL;
+            score = max(matrix[cell + I], matrix[cell + D], matrix[cell + M]);
+
+            boolean insert = j > 0 && score == matrix[cell + I],
+                    match = i > 0 && j > 0 && score == matrix[cell + M],
+                    // в нулевом столбце остаются только удаления
+                    delete = i > 0 && (j == 0 || score == matrix[cell + D]);
+
+            // Из равноценных переходов при аффинном штрафе выбирается insert -> match -> delete, как в lab2,
+            // при линейном (open = extend) - match -> delete -> insert, как в lab1
+            int op = open == extend
+                    ? (match ? M : delete ? D : I)
+                    : (insert ? I : match ? M : D);
+
+            if (op == I) {
+                firstBuilder.insert(0, '_');
+                secondBuilder.insert(0, secondSeq.charAt(j - 1));
+                j--;
+            } else if (op == M) {
+                firstBuilder.insert(0, firstSeq.charAt(i - 1));
+                secondBuilder.insert(0, secondSeq.charAt(j - 1));
+                i--; j--;
+            } else {
+                firstBuilder.insert(0, firstSeq.charAt(i - 1));
+                secondBuilder.insert(0, '_');
+                i--;
+            }
+        }
+
+        int last = (n * m - 1) * CELL;
+        score = max(matrix[last + I], matrix[last + D], matrix[last + M]);
+
+        return new Alignment(score, firstBuilder.toString(), secondBuilder.toString());
+    }
+
+    /**
+     * Печатает count лучших различных выравниваний в порядке невозрастания скора.
+     * Матрица заполняется один раз, альтернативные выравнивания восстанавливаются по ней {@link AlignmentEnumerator}.
+     */
+    public static void alignSequences(String firstSeq, String secondSeq, int open, int extend, PrintWriter out, BiFunction<Character, Character, Integer> scoreFunction, int count) {
+        AlignmentEnumerator alignments = new AlignmentEnumerator(firstSeq, secondSeq, open, extend, scoreFunction);
+
+        for (int k = 1; k <= count && alignments.hasNext(); k++) {
+            Alignment alignment = alignments.next();
+            out.println("Alignment #" + k);
+            printAlignmentAndScore(alignment.getScore(), alignment.getFirstSeq(), alignment.getSecondSeq(), out);
+        }
+    }
+
+    private static void printTable(PrintWriter out, int[][] score) {
+        int m = score[0].length;
+        int n = score.length;
+
+        out.print("\t\t");
+        for (int i = 0; i < m; i++) {
+            out.print("  " + i);
+        }
+        out.println("\n" + new String(new char[n*9]).replace("\0", "_"));
+        for (int i = 0; i < n; i++) {
+            out.print(i + "\t:\t");
+            for (int j = 0; j < m; j++) {
+                out.printf("%s\t", score[i][j]);
+            }
+            out.println();
+        }
+
+        out.println(new String(new char[n*9]).replace("\0", "#"));
+    }
+
+
+    public static void printAlignmentAndScore(int score, String firstSeq, String secondSeq, PrintWriter out) {
+        int n = firstSeq.length(),
+                k = (n % MAX_CHARS_PER_LINE == 0) ? n / MAX_CHARS_PER_LINE : n / MAX_CHARS_PER_LINE + 1;
+
+        String[] sequences = {firstSeq, secondSeq};
+
+        out.println("Score: " + score);
+        out.println();
+
+        for (int i = 0; i < k; i++) {
+            for(int si = 0; si < 2; si++) {
+                out.printf("seq%d: ", si + 1);
+                for (int j = MAX_CHARS_PER_LINE * i; j < min(n, MAX_CHARS_PER_LINE * (i + 1)); j++) {
+                    out.print(sequences[si].charAt(j));
+                }
+                out.println();
+            }
+            out.println();
+        }
+
+    }
+}
@@ -1,4 +1,5 @@
 import java.util.*;
+import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -77,6 +78,13 @@ public class NWUtils {
 /* * */  {-4, -4, -4, -4, -4, -4, -4, -4, -4, -4, -4, -4, -4, -4, -4, -4, -4, -4, -4, -4, -4, -4, -4,  1},
     };
 
+    /**
+     * Единичная стоимость: совпадение 0, несовпадение -1. Вместе с open = extend = -1 скор выравнивания равен
+     * расстоянию редактирования со знаком минус, и {@link NWAligner#alignmentScore} считает его через
+     * {@link MyersEditDistance}.
+     */
+    public static final BiFunction<Character, Character, Integer> UNIT_COST = (a, b) -> a.equals(b) ? 0 : -1;
+
     public static int dnaFull(char a, char b) {
         int i = N_CH_TO_IDX.get(a), j = N_CH_TO_IDX.get(b);
         return DNA_FULL_MATRIX[i][j];
@@ -0,0 +1,413 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Прогрессивное множественное выравнивание:
+ * 1) попарные расстояния по скору аффинного выравнивания {@link NWAligner#alignmentScore} (параллельно);
+ * 2) направляющее дерево методом UPGMA;
+ * 3) выравнивание профилей снизу вверх по дереву с теми же штрафами open/extend, независимые поддеревья
+ *    выравниваются параллельно в ForkJoinPool.
+ *
+ * Модель пропусков в профилях отличается от попарного выравнивания: здесь обычная рекурсия Готоха (пропуск
+ * продолжается только в своем состоянии, переход между пропусками в разных профилях - новое открытие), а в
+ * {@link NWAligner} оба состояния пропуска продолжаются из I, как в исходном lab2. Поэтому выравнивание двух
+ * последовательностей здесь может отличаться от попарного; на расстояния (шаг 1) это не влияет - они считаются
+ * попарным выравниванием.
+ */
+public class ProgressiveAligner {
+    private static final char GAP = '_';
+    private static final int M = 0, X = 1, Y = 2, CELL = 3;
+
+    private final int open, extend;
+    private final BiFunction<Character, Character, Integer> scoreFunction;
+    private final ForkJoinPool pool;
+
+    public ProgressiveAligner(int open, int extend, BiFunction<Character, Character, Integer> scoreFunction, ForkJoinPool pool) {
+        this.open = open;
+        this.extend = extend;
+        this.scoreFunction = scoreFunction;
+        this.pool = pool;
+    }
+
+    /**
+     * @return строки выравнивания (с пропусками '_') в том же порядке, что и входные последовательности
+     */
+    public List<String> align(List<String> sequences) {
+        int n = sequences.size();
+        if (n == 0) {
+            return new ArrayList<>();
+        }
+
+        try {
+            double[][] distances = pool.submit(() -> distanceMatrix(sequences)).get();
+            Node tree = guideTree(distances);
+            Profile profile = pool.submit(new ProfileTask(tree, sequences)).get();
+
+            String[] rows = new String[n];
+            for (int k = 0; k < profile.members.length; k++) {
+                rows[profile.members[k]] = profile.rows[k];
+            }
+            return Arrays.asList(rows);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Multiple alignment was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Multiple alignment failed", e.getCause());
+        }
+    }
+
+    // Расстояние 1 - S(a, b) / min(S(a, a), S(b, b)): 0 для совпадающих последовательностей, растет с падением скора.
+    // Вызывается внутри pool, поэтому параллельный поток использует его потоки.
+    double[][] distanceMatrix(List<String> sequences) {
+        int n = sequences.size();
+        double[][] distances = new double[n][n];
+        int[] selfScores = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            String seq = sequences.get(i);
+            for (int k = 0; k < seq.length(); k++) {
+                selfScores[i] += scoreFunction.apply(seq.charAt(k), seq.charAt(k));
+            }
+        }
+
+        IntStream.range(0, n).parallel().forEach(i -> {
+            for (int j = i + 1; j < n; j++) {
+                int score = NWAligner.alignmentScore(sequences.get(i), sequences.get(j), open, extend, scoreFunction);
+                int norm = Math.min(selfScores[i], selfScores[j]);
+                double d = norm > 0 ? Math.max(0.0, 1.0 - (double) score / norm) : 1.0;
+                distances[i][j] = distances[j][i] = d;
+            }
+        });
+
+        return distances;
+    }
+
+    static class Node {
+        final int leaf;
+        final Node left, right;
+        final int size;
+
+        Node(int leaf) {
+            this.leaf = leaf;
+            this.left = this.right = null;
+            this.size = 1;
+        }
+
+        Node(Node left, Node right) {
+            this.leaf = -1;
+            this.left = left;
+            this.right = right;
+            this.size = left.size + right.size;
+        }
+    }
+
+    // UPGMA с кэшем ближайшего соседа для каждого кластера: в среднем O(n^2) вместо O(n^3) полного перебора пар.
+    static Node guideTree(double[][] distances) {
+        int n = distances.length;
+        double[][] d = new double[n][];
+        for (int i = 0; i < n; i++) {
+            d[i] = distances[i].clone();
+        }
+
+        Node[] clusters = new Node[n];
+        int[] nearest = new int[n];
+        for (int i = 0; i < n; i++) {
+            clusters[i] = new Node(i);
+        }
+        for (int i = 0; i < n; i++) {
+            nearest[i] = findNearest(d, clusters, i);
+        }
+
+        for (int step = 1; step < n; step++) {
+            int a = -1;
+            for (int i = 0; i < n; i++) {
+                if (clusters[i] != null && nearest[i] >= 0 && (a < 0 || d[i][nearest[i]] < d[a][nearest[a]])) {
+                    a = i;
+                }
+            }
+            int b = nearest[a];
+            int sizeA = clusters[a].size, sizeB = clusters[b].size;
+
+            // новый кластер занимает место a, кластер b удаляется
+            clusters[a] = new Node(clusters[a], clusters[b]);
+            clusters[b] = null;
+            for (int k = 0; k < n; k++) {
+                if (clusters[k] != null && k != a) {
+                    d[a][k] = d[k][a] = (d[a][k] * sizeA + d[b][k] * sizeB) / (sizeA + sizeB);
+                }
+            }
+
+            for (int k = 0; k < n; k++) {
+                if (clusters[k] == null) {
+                    continue;
+                }
+                if (k == a || nearest[k] == a || nearest[k] == b) {
+                    nearest[k] = findNearest(d, clusters, k);
+                } else if (d[k][a] < d[k][nearest[k]]) {
+                    nearest[k] = a;
+                }
+            }
+        }
+
+        for (Node cluster : clusters) {
+            if (cluster != null) {
+                return cluster;
+            }
+        }
+        throw new IllegalArgumentException("Empty distance matrix");
+    }
+
+    private static int findNearest(double[][] d, Node[] clusters, int i) {
+        int nearest = -1;
+        for (int k = 0; k < d.length; k++) {
+            if (k != i && clusters[k] != null && (nearest < 0 || d[i][k] < d[i][nearest])) {
+                nearest = k;
+            }
+        }
+        return nearest;
+    }
+
+    static class Profile {
+        final int[] members;
+        final String[] rows;
+
+        Profile(int[] members, String[] rows) {
+            this.members = members;
+            this.rows = rows;
+        }
+
+        int length() {
+            return rows[0].length();
+        }
+    }
+
+    private class ProfileTask extends RecursiveTask<Profile> {
+        private static final long serialVersionUID = 1L;
+
+        private final Node node;
+        private final List<String> sequences;
+
+        ProfileTask(Node node, List<String> sequences) {
+            this.node = node;
+            this.sequences = sequences;
+        }
+
+        @Override
+        protected Profile compute() {
+            if (node.leaf >= 0) {
+                return new Profile(new int[]{node.leaf}, new String[]{sequences.get(node.leaf)});
+            }
+
+            ProfileTask left = new ProfileTask(node.left, sequences);
+            left.fork();
+            Profile right = new ProfileTask(node.right, sequences).compute();
+            return alignProfiles(left.join(), right);
+        }
+    }
+
+    // Столбец профиля: различные символы столбца (без пропусков) и их количество
+    private static class Column {
+        final char[] chars;
+        final int[] counts;
+
+        Column(char[] chars, int[] counts) {
+            this.chars = chars;
+            this.counts = counts;
+        }
+    }
+
+    private static Column[] columns(Profile profile) {
+        Column[] columns = new Column[profile.length()];
+        char[] chars = new char[profile.rows.length];
+        int[] counts = new int[profile.rows.length];
+
+        for (int c = 0; c < columns.length; c++) {
+            int distinct = 0;
+            for (String row : profile.rows) {
+                char ch = row.charAt(c);
+                if (ch == GAP) {
+                    continue;
+                }
+                int k = 0;
+                while (k < distinct && chars[k] != ch) {
+                    k++;
+                }
+                if (k == distinct) {
+                    chars[distinct] = ch;
+                    counts[distinct++] = 0;
+                }
+                counts[k]++;
+            }
+            columns[c] = new Column(Arrays.copyOf(chars, distinct), Arrays.copyOf(counts, distinct));
+        }
+
+        return columns;
+    }
+
+    // Для каждого столбца a и каждого символа alphabet - сумма скоров символов столбца с этим символом
+    private int[][] columnScores(Column[] a, char[] alphabet) {
+        int[][] scores = new int[a.length][alphabet.length];
+        for (int c = 0; c < a.length; c++) {
+            for (int x = 0; x < a[c].chars.length; x++) {
+                for (int k = 0; k < alphabet.length; k++) {
+                    scores[c][k] += a[c].counts[x] * scoreFunction.apply(a[c].chars[x], alphabet[k]);
+                }
+            }
+        }
+        return scores;
+    }
+
+    // Различные символы всех столбцов по возрастанию
+    private static char[] alphabet(Column[] columns) {
+        StringBuilder alphabet = new StringBuilder();
+        for (Column column : columns) {
+            for (char ch : column.chars) {
+                if (alphabet.indexOf(String.valueOf(ch)) < 0) {
+                    alphabet.append(ch);
+                }
+            }
+        }
+        char[] chars = alphabet.toString().toCharArray();
+        Arrays.sort(chars);
+        return chars;
+    }
+
+    // Индекс максимального из трех значений (при равенстве - первого) среди состояний M, X, Y
+    private static int argmax(double m, double x, double y) {
+        return m >= x ? (m >= y ? M : Y) : (x >= y ? X : Y);
+    }
+
+    /**
+     * Выравнивание двух профилей алгоритмом Готоха: M - столбец со столбцом, X - столбец первого профиля с пропуском,
+     * Y - столбец второго профиля с пропуском. Матрицы лежат в одном плоском массиве, как в NWAligner,
+     * для обратного хода для каждого состояния запоминается состояние предшественника.
+     */
+    Profile alignProfiles(Profile first, Profile second) {
+        Column[] a = columns(first), b = columns(second);
+        int n = a.length + 1, m = b.length + 1, rowSize = m * CELL;
+        double inf = Double.NEGATIVE_INFINITY;
+
+        // Скор пары столбцов - средний скор по всем парам их строк (пары с пропуском дают 0). Функция скора
+        // вызывается только здесь: для столбцов первого профиля против символов второго, а в ячейке остается
+        // сумма по символам столбца второго профиля.
+        char[] alphabet = alphabet(b);
+        int[][] scores = columnScores(a, alphabet);
+        int[][] symbols = new int[b.length][];
+        for (int c = 0; c < b.length; c++) {
+            symbols[c] = new int[b[c].chars.length];
+            for (int y = 0; y < symbols[c].length; y++) {
+                symbols[c][y] = Arrays.binarySearch(alphabet, b[c].chars[y]);
+            }
+        }
+        double pairs = (double) first.rows.length * second.rows.length;
+
+        if ((long) n * m * CELL > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Profiles are too long to be aligned: " + (n - 1) + "x" + (m - 1));
+        }
+
+        double[] matrix = new double[n * m * CELL];
+        byte[] trace = new byte[n * m * CELL];
+
+        matrix[M] = 0;
+        matrix[X] = matrix[Y] = inf;
+        for (int i = 1; i < n; i++) {
+            int cell = i * rowSize;
+            matrix[cell + M] = matrix[cell + Y] = inf;
+            matrix[cell + X] = open + (i - 1) * extend;
+            trace[cell + X] = (byte) (i == 1 ? M : X);
+        }
+        for (int j = 1; j < m; j++) {
+            int cell = j * CELL;
+            matrix[cell + M] = matrix[cell + X] = inf;
+            matrix[cell + Y] = open + (j - 1) * extend;
+            trace[cell + Y] = (byte) (j == 1 ? M : Y);
+        }
+
+        for (int i = 1; i < n; i++) {
+            int[] rowScores = scores[i - 1];
+            for (int j = 1, cell = i * rowSize + CELL; j < m; j++, cell += CELL) {
+                int left = cell - CELL, up = cell - rowSize, diag = up - CELL;
+                int[] columnSymbols = symbols[j - 1], columnCounts = b[j - 1].counts;
+                long sum = 0;
+                for (int y = 0; y < columnSymbols.length; y++) {
+                    sum += (long) columnCounts[y] * rowScores[columnSymbols[y]];
+                }
+                double score = sum / pairs;
+
+                int from = argmax(matrix[diag + M], matrix[diag + X], matrix[diag + Y]);
+                matrix[cell + M] = matrix[diag + from] + score;
+                trace[cell + M] = (byte) from;
+
+                from = argmax(matrix[up + M] + open, matrix[up + X] + extend, matrix[up + Y] + open);
+                matrix[cell + X] = matrix[up + from] + (from == X ? extend : open);
+                trace[cell + X] = (byte) from;
+
+                from = argmax(matrix[left + M] + open, matrix[left + X] + open, matrix[left + Y] + extend);
+                matrix[cell + Y] = matrix[left + from] + (from == Y ? extend : open);
+                trace[cell + Y] = (byte) from;
+            }
+        }
+
+        // обратный ход: восстанавливаем последовательность операций с конца
+        StringBuilder ops = new StringBuilder(n + m);
+        int i = n - 1, j = m - 1, last = (i * m + j) * CELL;
+        int state = argmax(matrix[last + M], matrix[last + X], matrix[last + Y]);
+
+        while (i > 0 || j > 0) {
+            int from = trace[(i * m + j) * CELL + state];
+            if (state == M) {
+                ops.append('M');
+                i--; j--;
+            } else if (state == X) {
+                ops.append('X');
+                i--;
+            } else {
+                ops.append('Y');
+                j--;
+            }
+            state = from;
+        }
+        ops.reverse();
+
+        return merge(first, second, ops);
+    }
+
+    private static Profile merge(Profile first, Profile second, CharSequence ops) {
+        int total = first.rows.length + second.rows.length;
+        StringBuilder[] builders = new StringBuilder[total];
+        for (int k = 0; k < total; k++) {
+            builders[k] = new StringBuilder(ops.length());
+        }
+
+        int i = 0, j = 0;
+        for (int p = 0; p < ops.length(); p++) {
+            char op = ops.charAt(p);
+            for (int k = 0; k < first.rows.length; k++) {
+                builders[k].append(op == 'Y' ? GAP : first.rows[k].charAt(i));
+            }
+            for (int k = 0; k < second.rows.length; k++) {
+                builders[first.rows.length + k].append(op == 'X' ? GAP : second.rows[k].charAt(j));
+            }
+            if (op != 'Y') {
+                i++;
+            }
+            if (op != 'X') {
+                j++;
+            }
+        }
+
+        int[] members = new int[total];
+        String[] rows = new String[total];
+        for (int k = 0; k < total; k++) {
+            members[k] = k < first.members.length ? first.members[k] : second.members[k - first.members.length];
+            rows[k] = builders[k].toString();
+        }
+        return new Profile(members, rows);
+    }
+}
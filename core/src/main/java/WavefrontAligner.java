@@ -0,0 +1,109 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Параллельный подсчет скора выравнивания (того же, что у {@link NWAligner#alignmentScore}) по фронту волны.
+ *
+ * Матрица делится на квадратные плитки tile x tile. Плитка (ti, tj) зависит только от плиток сверху, слева и по
+ * диагонали, поэтому все плитки одной антидиагонали ti + tj считаются параллельно. Каждая плитка получает верхнюю
+ * строку из bottom[ti] и левый столбец из right[tj], а свою нижнюю строку и правый столбец записывает в bottom[ti + 1]
+ * и right[tj + 1]; разные плитки пишут в непересекающиеся части массивов. Память O(n * m / tile).
+ */
+public class WavefrontAligner {
+    private static final int M = NWAligner.M, I = NWAligner.I, D = NWAligner.D,
+            CELL = NWAligner.CELL;
+
+    public static final int DEFAULT_TILE = 256;
+
+    public static int score(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction, ForkJoinPool pool, int tile) {
+        int n = firstSeq.length() + 1,
+            m = secondSeq.length() + 1,
+            inf = 2 * open + (n + m) * extend + 1;
+
+        if (n == 1 || m == 1) {
+            return NWAligner.affineScore(firstSeq, secondSeq, open, extend, scoreFunction);
+        }
+
+        int rows = (n - 1 + tile - 1) / tile, cols = (m - 1 + tile - 1) / tile;
+        int[][] scoreRows = NWAligner.scoreRows(firstSeq, secondSeq, scoreFunction);
+        int[][] bottom = new int[rows + 1][], right = new int[cols + 1][];
+
+        // bottom[0] - нулевая строка матрицы, right[0] - нулевой столбец
+        bottom[0] = new int[m * CELL];
+        right[0] = new int[n * CELL];
+        bottom[0][M] = right[0][M] = 0;
+        bottom[0][I] = bottom[0][D] = right[0][I] = right[0][D] = inf;
+        for (int j = 1; j < m; j++) {
+            bottom[0][j * CELL + M] = bottom[0][j * CELL + D] = inf;
+            bottom[0][j * CELL + I] = open + (j - 1) * extend;
+        }
+        for (int i = 1; i < n; i++) {
+            right[0][i * CELL + M] = right[0][i * CELL + D] = inf;
+            right[0][i * CELL + I] = open + (i - 1) * extend;
+        }
+        for (int ti = 1; ti <= rows; ti++) {
+            bottom[ti] = new int[m * CELL];
+        }
+        for (int tj = 1; tj <= cols; tj++) {
+            right[tj] = new int[n * CELL];
+        }
+
+        try {
+            for (int d = 0; d < rows + cols - 1; d++) {
+                int diagonal = d;
+                int from = Math.max(0, d - cols + 1), to = Math.min(d, rows - 1);
+                pool.submit(() -> IntStream.rangeClosed(from, to).parallel().forEach(ti ->
+                        computeTile(firstSeq, secondSeq, open, extend, scoreRows, tile, ti, diagonal - ti, bottom, right)
+                )).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Wavefront alignment was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Wavefront alignment failed", e.getCause());
+        }
+
+        int last = (m - 1) * CELL;
+        return max(bottom[rows][last + I], bottom[rows][last + D], bottom[rows][last + M]);
+    }
+
+    private static int max(int a, int b, int c) {
+        return Math.max(a, Math.max(b, c));
+    }
+
+    private static void computeTile(String firstSeq, String secondSeq, int open, int extend, int[][] scoreRows,
+                                    int tile, int ti, int tj, int[][] bottom, int[][] right) {
+        int i0 = ti * tile + 1, i1 = Math.min(firstSeq.length(), (ti + 1) * tile),
+            j0 = tj * tile + 1, j1 = Math.min(secondSeq.length(), (tj + 1) * tile),
+            width = (j1 - j0 + 2) * CELL;
+
+        // локальные строки: ячейка 0 - столбец j0 - 1, ячейки 1.. - столбцы j0..j1
+        int[] prev = new int[width], cur = new int[width];
+        System.arraycopy(bottom[ti], (j0 - 1) * CELL, prev, 0, width);
+        int[] left = right[tj], out = right[tj + 1];
+
+        for (int i = i0; i <= i1; i++) {
+            int[] scores = scoreRows[i - 1];
+            System.arraycopy(left, i * CELL, cur, 0, CELL);
+
+            for (int j = j0, cell = CELL; j <= j1; j++, cell += CELL) {
+                int l = cell - CELL;
+                cur[cell + M] = max(prev[l + M], prev[l + I], prev[l + D]) + scores[j - 1];
+                cur[cell + I] = max(cur[l + I] + extend, cur[l + M] + open, cur[l + D] + open);
+                cur[cell + D] = max(prev[cell + I] + extend, prev[cell + M] + open, prev[cell + D] + open);
+            }
+
+            System.arraycopy(cur, width - CELL, out, i * CELL, CELL);
+
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+
+        // в первом столбце плиток нижняя строка включает и нулевой столбец матрицы: он нужен плитке ниже как угол
+        int skip = tj == 0 ? 0 : CELL;
+        System.arraycopy(prev, skip, bottom[ti + 1], (j0 - 1) * CELL + skip, width - skip);
+    }
+}
@@ -0,0 +1,55 @@
+import java.util.function.BiFunction;
+
+import static java.lang.Math.max;
+
+/**
+ * Выравнивание с линейным штрафом за пропуск из lab1 (до объединения в один модуль) - эталон для тестов NWAligner
+ * с open = extend. Алгоритм не изменен, вместо печати возвращается результат.
+ */
+class Lab1Reference {
+    static Alignment align(String firstSeq, String secondSeq, int gap, BiFunction<Character, Character, Integer> scoreFunction) {
+        int match, delete, insert, n = firstSeq.length() + 1, m = secondSeq.length() + 1;
+        int[][] score = new int[n][m];
+
+        score[0][0] = 0;
+
+        for (int i = 0; i < n; i++) {
+            score[i][0] = gap * i;
+        }
+
+        for (int j = 0; j < m; j++) {
+            score[0][j] = gap * j;
+        }
+
+        for (int i = 1; i < n; i++) {
+            for (int j = 1; j < m; j++) {
+                match = score[i - 1][j - 1] + scoreFunction.apply(firstSeq.charAt(i - 1), secondSeq.charAt(j - 1));
+                delete = score[i - 1][j] + gap;
+                insert = score[i][j - 1] + gap;
+                score[i][j] = max(max(match, delete), insert);
+            }
+        }
+
+        StringBuilder firstBuilder = new StringBuilder();
+        StringBuilder secondBuilder = new StringBuilder();
+        int i = n - 1, j = m - 1;
+
+        while(i > 0 || j > 0) {
+            if(i > 0 && j > 0 && score[i][j] == score[i - 1][j - 1] + scoreFunction.apply(firstSeq.charAt(i - 1), secondSeq.charAt(j - 1))) {
+                firstBuilder.insert(0, firstSeq.charAt(i - 1));
+                secondBuilder.insert(0, secondSeq.charAt(j - 1));
+                i--; j--;
+            } else if(i > 0 && score[i][j] == score[i - 1][j] + gap) {
+                firstBuilder.insert(0, firstSeq.charAt(i - 1));
+                secondBuilder.insert(0, '_');
+                i--;
+            } else if(j > 0 && score[i][j] == score[i][j - 1] + gap) {
+                firstBuilder.insert(0, '_');
+                secondBuilder.insert(0, secondSeq.charAt(j - 1));
+                j--;
+            }
+        }
+
+        return new Alignment(score[n - 1][m - 1], firstBuilder.toString(), secondBuilder.toString());
+    }
+}
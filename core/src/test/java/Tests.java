@@ -0,0 +1,531 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class Tests {
+    @Test
+    public void test1() {
+        int open = -10, extend = -1;
+        BiFunction<Character, Character, Integer> scoreFunc = (a, b) -> (a == b) ? 5 : 4;
+        String seq1 = "ACGT", seq2 = "ACGGCTT";
+        NWAligner.alignSequences(seq1, seq2, open, extend, new PrintWriter(System.out, true), scoreFunc);
+    }
+
+    @Test
+    public void leadingDeletions() {
+        StringWriter out = new StringWriter();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+                NWAligner.alignSequences("AAAC", "C", -10, -1, new PrintWriter(out, true), NWUtils::dnaFull));
+        assertEquals(String.format("Score: -7%n%nseq1: AAAC%nseq2: ___C%n%n"), out.toString());
+    }
+
+    @Test
+    public void alternativeAlignments() {
+        String seq1 = "ACAC", seq2 = "ACACAC";
+        AlignmentEnumerator alignments = new AlignmentEnumerator(seq1, seq2, -10, -1, NWUtils::dnaFull);
+        Set<String> seen = new HashSet<>();
+        int previous = Integer.MAX_VALUE;
+
+        for (int k = 0; k < 10 && alignments.hasNext(); k++) {
+            Alignment alignment = alignments.next();
+            assertTrue(alignment.getScore() <= previous);
+            assertTrue(seen.add(alignment.getFirstSeq() + "/" + alignment.getSecondSeq()));
+            assertEquals(seq1, alignment.getFirstSeq().replace("_", ""));
+            assertEquals(seq2, alignment.getSecondSeq().replace("_", ""));
+            previous = alignment.getScore();
+        }
+        assertEquals(10, seen.size());
+
+        // пропуск длины 2 можно поставить в любую из пяти позиций ACACAC
+        AlignmentEnumerator coOptimal = new AlignmentEnumerator(seq1, seq2, -10, -1, NWUtils::dnaFull, 0);
+        int count = 0;
+        while (coOptimal.hasNext()) {
+            assertEquals(coOptimal.getBestScore(), coOptimal.next().getScore());
+            count++;
+        }
+        assertEquals(5, count);
+        assertFalse(coOptimal.hasNext());
+    }
+
+    @Test
+    public void alternativeAlignmentsOfLongPairs() {
+        Random random = new Random(11);
+        String seq1 = randomSequence(random, "ACGT", 400);
+        StringBuilder seq2 = new StringBuilder();
+        for (char ch : seq1.toCharArray()) {
+            int r = random.nextInt(100);
+            if (r >= 2) {
+                seq2.append(r < 4 ? randomSequence(random, "ACGT", 1).charAt(0) : ch);
+            }
+        }
+        String polyA = String.join("", Collections.nCopies(60, "A"));
+
+        // без обхода в глубину очередь растет экспоненциально: похожие пары и гомополимеры не укладываются в память.
+        // С ним каждое из K выравниваний извлекает из очереди O(n + m) шагов и добавляет не больше трех на шаг.
+        int alternatives = 5;
+        for (String[] pair : new String[][]{{seq1, seq2.toString()}, {polyA, polyA.substring(5)}}) {
+            AlignmentEnumerator alignments = new AlignmentEnumerator(pair[0], pair[1], -4, -4, NWUtils::dnaFull);
+            int previous = Integer.MAX_VALUE, path = pair[0].length() + pair[1].length() + 2;
+            for (int k = 0; k < alternatives; k++) {
+                Alignment alignment = alignments.next();
+                assertTrue(alignment.getScore() <= previous);
+                assertEquals(pair[0], alignment.getFirstSeq().replace("_", ""));
+                assertEquals(pair[1], alignment.getSecondSeq().replace("_", ""));
+                previous = alignment.getScore();
+            }
+            assertEquals(alignments.getBestScore(), NWAligner.align(pair[0], pair[1], -4, -4, NWUtils::dnaFull).getScore());
+            assertTrue(alignments.expanded() <= alternatives * path, "expanded " + alignments.expanded());
+            assertTrue(alignments.pending() <= 3 * alternatives * path, "queue size " + alignments.pending());
+        }
+    }
+
+    @Test
+    public void linearMemoryScore() {
+        Random random = new Random(42);
+        for (int k = 0; k < 50; k++) {
+            String seq1 = randomSequence(random, "ACGT", random.nextInt(30)),
+                   seq2 = randomSequence(random, "ACGT", random.nextInt(30));
+            StringWriter out = new StringWriter();
+            NWAligner.alignSequences(seq1, seq2, -10, -1, new PrintWriter(out, true), NWUtils::dnaFull);
+            int score = NWAligner.alignmentScore(seq1, seq2, -10, -1, NWUtils::dnaFull);
+            assertTrue(out.toString().startsWith("Score: " + score + System.lineSeparator()));
+        }
+    }
+
+    @Test
+    public void multipleAlignment() {
+        List<String> sequences = Arrays.asList("HEAGAWGHEE", "PAWHEAE", "HEAGAWGHEE", "HEAWGHEE", "PAWHEAEGG");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        List<String> rows = new ProgressiveAligner(-10, -1, NWUtils::blosum62, pool).align(sequences);
+        pool.shutdown();
+
+        assertEquals(sequences.size(), rows.size());
+        for (int k = 0; k < rows.size(); k++) {
+            assertEquals(rows.get(0).length(), rows.get(k).length());
+            assertEquals(sequences.get(k), rows.get(k).replace("_", ""));
+        }
+        // одинаковые последовательности выравниваются одинаково
+        assertEquals(rows.get(0), rows.get(2));
+    }
+
+    @Test
+    public void multipleAlignmentOfSmallExample() {
+        // DNAfull (5 / -4), пропуски -10/-1. Расстояния: AGTA-CGTA 1 - 11/20 = 0.45, ACGTA-AGTA и ACGTA-CGTA
+        // 1 - 10/20 = 0.5, одинаковые - 0. Дерево: ((AGTA, AGTA), CGTA) и (ACGTA, ACGTA). В профиле из трех строк
+        // первый столбец {A, A, C}: пропуск против C дает (5 + 5 - 4) / 3 + 3 * 5 - 10 = 7,
+        // против A - (-4 - 4 + 5) / 3 + 3 * 5 - 10 = 4, остальные положения пропуска хуже.
+        List<String> sequences = Arrays.asList("AGTA", "ACGTA", "CGTA", "ACGTA", "AGTA");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        List<String> rows = new ProgressiveAligner(-10, -1, NWUtils::dnaFull, pool).align(sequences);
+        pool.shutdown();
+
+        assertEquals(Arrays.asList("A_GTA", "ACGTA", "C_GTA", "ACGTA", "A_GTA"), rows);
+    }
+
+    @Test
+    public void pipelineKeepsInputOrder() throws Exception {
+        Random random = new Random(7);
+        StringBuilder input = new StringBuilder(), expected = new StringBuilder();
+
+        for (int k = 0; k < 100; k++) {
+            String seq1 = randomSequence(random, "ACGT", 1 + random.nextInt(40)),
+                   seq2 = randomSequence(random, "ACGT", 1 + random.nextInt(40));
+            input.append("a").append(k).append(' ').append(seq1).append(" b").append(k).append(' ').append(seq2).append('\n');
+
+            StringWriter single = new StringWriter();
+            NWAligner.alignSequences(seq1, seq2, -10, -1, new PrintWriter(single, true), NWUtils::dnaFull);
+            expected.append(String.format("Pair: a%d / b%d%n", k, k)).append(single);
+        }
+        input.append("ACGT XYZ\n");
+
+        AlignmentPipeline pipeline = new AlignmentPipeline('n', -10, -1);
+        pipeline.setAlignThreads(4);
+        pipeline.setBufferSize(3);
+        StringWriter out = new StringWriter(), errors = new StringWriter();
+        long written = pipeline.run(new BufferedReader(new StringReader(input.toString())), new PrintWriter(out), new PrintWriter(errors, true));
+
+        assertEquals(100, written);
+        assertEquals(expected.toString(), out.toString());
+        assertTrue(errors.toString().startsWith("[error] Pair 101: Invalid input sequence"));
+    }
+
+    @Test
+    public void pipelineSkipsPairTooLargeForHeap() throws Exception {
+        // матрица 100000x100000 не помещается ни в какую кучу тестов: пара отклоняется, остальные выводятся
+        String huge = String.join("", Collections.nCopies(100_000, "A"));
+        String input = "ACGT ACGGCTT\n" + huge + " " + huge + "\nACGT ACGT\n";
+
+        AlignmentPipeline pipeline = new AlignmentPipeline('n', -10, -1);
+        pipeline.setAlignThreads(2);
+        StringWriter out = new StringWriter(), errors = new StringWriter();
+        long written = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                pipeline.run(new BufferedReader(new StringReader(input)), new PrintWriter(out), new PrintWriter(errors, true)));
+
+        assertEquals(2, written);
+        assertTrue(errors.toString().startsWith("[error] Pair 2: Full alignment of 100000x100000 requires"), errors.toString());
+    }
+
+    @Test
+    public void pipelineSharesMemoryBudget() throws Exception {
+        // матрица 400x400 занимает 2 МБ, бюджета в 3 МБ хватает на одну такую пару за раз; 800x800 не помещается никогда
+        Random random = new Random(3);
+        StringBuilder input = new StringBuilder();
+        for (int k = 0; k < 8; k++) {
+            input.append(randomSequence(random, "ACGT", 400)).append(' ').append(randomSequence(random, "ACGT", 400)).append('\n');
+        }
+        input.append(randomSequence(random, "ACGT", 800)).append(' ').append(randomSequence(random, "ACGT", 800)).append('\n');
+
+        AlignmentPipeline pipeline = new AlignmentPipeline('n', -10, -1);
+        pipeline.setAlignThreads(4);
+        pipeline.setMemoryBudget(3 << 20);
+        StringWriter out = new StringWriter(), errors = new StringWriter();
+        long written = pipeline.run(new BufferedReader(new StringReader(input.toString())), new PrintWriter(out), new PrintWriter(errors, true));
+
+        assertEquals(8, written);
+        assertEquals(String.format("[error] Pair 9: Full alignment of 800x800 requires 8 MB, memory budget is 3 MB%n"), errors.toString());
+    }
+
+    @Test
+    public void alignmentStoreRoundTrip() throws Exception {
+        Random random = new Random(23);
+        Path dir = Files.createTempDirectory("alignment-store");
+        Path path = dir.resolve("pairs.nwas");
+        StringBuilder input = new StringBuilder(), expected = new StringBuilder();
+        List<Alignment> alignments = new ArrayList<>();
+
+        try {
+            for (int k = 0; k < 50; k++) {
+                // пара с ошибкой занимает свой номер, номера следующих пар не сдвигаются
+                if (k == 25) {
+                    input.append("a25 ACGT b25\n");
+                    alignments.add(null);
+                    continue;
+                }
+                // каждая десятая первая последовательность много длиннее второй: в CIGAR длинные D
+                String seq1 = randomSequence(random, "ACGT", k % 10 == 0 ? 200 : 1 + random.nextInt(40)),
+                       seq2 = randomSequence(random, "ACGT", 1 + random.nextInt(40));
+                input.append("a").append(k).append(' ').append(seq1).append(" b").append(k).append(' ').append(seq2).append('\n');
+                alignments.add(NWAligner.align(seq1, seq2, -10, -1, NWUtils::dnaFull));
+
+                StringWriter single = new StringWriter();
+                NWAligner.alignSequences(seq1, seq2, -10, -1, new PrintWriter(single, true), NWUtils::dnaFull);
+                expected.append(String.format("Pair: a%d / b%d%n", k, k)).append(single);
+            }
+
+            AlignmentPipeline pipeline = new AlignmentPipeline('n', -10, -1);
+            pipeline.setAlignThreads(4);
+            try (AlignmentStore.Writer store = new AlignmentStore.Writer(path)) {
+                assertEquals(49, pipeline.run(new BufferedReader(new StringReader(input.toString())), store, new PrintWriter(new StringWriter())));
+            }
+            // повторное открытие дописывает в конец
+            Alignment empty = NWAligner.align("", "ACGT", -10, -1, NWUtils::dnaFull);
+            try (AlignmentStore.Writer store = new AlignmentStore.Writer(path)) {
+                assertEquals(50, store.append("empty", "четыре", empty));
+            }
+
+            try (AlignmentStore.Reader store = new AlignmentStore.Reader(path)) {
+                assertEquals(51, store.size());
+                StringWriter text = new StringWriter();
+                for (int k = 0; k < 50; k++) {
+                    if (k == 25) {
+                        long failed = k;
+                        assertTrue(store.isFailed(failed));
+                        assertThrows(IllegalStateException.class, () -> store.get(failed));
+                        continue;
+                    }
+                    assertFalse(store.isFailed(k));
+                    AlignmentStore.Record record = store.get(k);
+                    assertEquals(alignments.get(k).getScore(), store.score(k));
+                    assertEquals(alignments.get(k).getFirstSeq(), record.toAlignment().getFirstSeq());
+                    assertEquals(alignments.get(k).getSecondSeq(), record.toAlignment().getSecondSeq());
+                    record.print(new PrintWriter(text, true));
+                }
+                assertEquals(expected.toString(), text.toString());
+
+                assertFalse(store.isFailed(50));
+                AlignmentStore.Record last = store.get(50);
+                assertEquals("четыре", last.getSecondId());
+                assertEquals("4I", last.getCigar());
+                assertEquals(4, last.getSecondEnd());
+                assertEquals(empty.getFirstSeq(), last.toAlignment().getFirstSeq());
+            }
+        } finally {
+            Files.deleteIfExists(AlignmentStore.indexPath(path));
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    public void alignmentStoreRejectsBrokenFiles() throws Exception {
+        Path dir = Files.createTempDirectory("alignment-store");
+        Path path = dir.resolve("pairs.nwas");
+
+        try {
+            try (AlignmentStore.Writer store = new AlignmentStore.Writer(path)) {
+                store.append("a", "b", NWAligner.align("ACGT", "ACGGCTT", -10, -1, NWUtils::dnaFull));
+            }
+            // без индекса новые номера пар совпали бы с записанными
+            Files.delete(AlignmentStore.indexPath(path));
+            IOException missing = assertThrows(IOException.class, () -> new AlignmentStore.Writer(path));
+            assertTrue(missing.getMessage().startsWith("Missing alignment store index"));
+
+            Files.write(AlignmentStore.indexPath(path), new byte[0]);
+            Files.write(path, "not a store".getBytes(StandardCharsets.UTF_8));
+            IOException header = assertThrows(IOException.class, () -> new AlignmentStore.Reader(path));
+            assertTrue(header.getMessage().startsWith("Not an alignment store"));
+        } finally {
+            Files.deleteIfExists(AlignmentStore.indexPath(path));
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    public void batchedExecutor() throws Exception {
+        checkExecutor(AlignmentExecutor.Mode.FIXED);
+    }
+
+    @Test
+    public void executorSurvivesErrorInBatch() throws Exception {
+        BiFunction<Character, Character, Integer> failing = (a, b) -> {
+            throw new OutOfMemoryError("test");
+        };
+        List<CompletableFuture<Alignment>> results = new ArrayList<>();
+
+        try (AlignmentExecutor executor = new AlignmentExecutor(AlignmentExecutor.Mode.FIXED, -10, -1)) {
+            executor.setBatchSize(4);
+            for (int k = 0; k < 8; k++) {
+                results.add(executor.submit("ACGT", "ACGGCTT", k == 1 ? failing : NWUtils::dnaFull));
+            }
+        }
+
+        for (int k = 0; k < results.size(); k++) {
+            CompletableFuture<Alignment> result = results.get(k);
+            assertTrue(result.isDone());
+            assertEquals(k == 1, result.isCompletedExceptionally());
+        }
+    }
+
+    @Test
+    public void executorCloseKeepsInterrupt() throws Exception {
+        CompletableFuture<Alignment> result;
+        AlignmentExecutor executor = new AlignmentExecutor(AlignmentExecutor.Mode.FIXED, -10, -1);
+        try {
+            result = executor.submit("ACGT", "ACGGCTT", NWUtils::dnaFull);
+            Thread.currentThread().interrupt();
+            executor.close();
+            assertTrue(Thread.interrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        // прерванный close() не отменяет уже отправленные задачи
+        assertEquals(NWAligner.align("ACGT", "ACGGCTT", -10, -1, NWUtils::dnaFull).getScore(), result.get(5, TimeUnit.SECONDS).getScore());
+    }
+
+    @Test
+    public void virtualThreadExecutor() throws Exception {
+        if (!Boolean.getBoolean("nwalgo.requireVirtualThreads")) {
+            assumeTrue(AlignmentExecutor.virtualThreadsAvailable(), "virtual threads require Java 21+");
+        }
+        checkExecutor(AlignmentExecutor.Mode.VIRTUAL);
+    }
+
+    @Test
+    public void bitParallelEditDistance() {
+        Random random = new Random(5);
+        for (int k = 0; k < 300; k++) {
+            // длины до 200 - несколько 64-битных блоков
+            String seq1 = randomSequence(random, k % 2 == 0 ? "ACGT" : "AC", random.nextInt(k < 150 ? 20 : 200)),
+                   seq2 = randomSequence(random, "ACGT", random.nextInt(k < 150 ? 20 : 200));
+            int expected = -NWAligner.affineScore(seq1, seq2, -1, -1, NWUtils.UNIT_COST);
+            assertEquals(expected, MyersEditDistance.distance(seq1, seq2));
+            assertEquals(-expected, NWAligner.alignmentScore(seq1, seq2, -1, -1, NWUtils.UNIT_COST));
+        }
+        assertEquals(3, MyersEditDistance.distance("kitten", "sitting"));
+        assertEquals(64, MyersEditDistance.distance(randomSequence(random, "A", 64), ""));
+    }
+
+    @Test
+    public void dispatchedEnginesMatchFullScore() {
+        Random random = new Random(13);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        AlignmentDispatcher dispatcher = new AlignmentDispatcher(pool, null);
+        try {
+            for (int k = 0; k < 120; k++) {
+                String alphabet = k % 3 == 0 ? "ARNDCQEGHILKMFPSTWYV" : "ACGT";
+                BiFunction<Character, Character, Integer> sf = k % 3 == 0 ? NWUtils::blosum62 : NWUtils::dnaFull;
+                String seq1 = randomSequence(random, alphabet, 1 + random.nextInt(150)), seq2;
+                if (k % 2 == 0) {
+                    // похожая пара: точечные замены и вставки, в том числе длинная вставка в конце
+                    StringBuilder mutated = new StringBuilder(seq1);
+                    for (int mutation = random.nextInt(6); mutation > 0; mutation--) {
+                        mutated.setCharAt(random.nextInt(mutated.length()), alphabet.charAt(random.nextInt(alphabet.length())));
+                    }
+                    seq2 = mutated.append(randomSequence(random, alphabet, random.nextInt(40))).toString();
+                } else {
+                    seq2 = randomSequence(random, alphabet, 1 + random.nextInt(150));
+                }
+
+                int expected = NWAligner.affineScore(seq1, seq2, -10, -1, sf);
+                assertEquals(expected, BandedAligner.score(seq1, seq2, -10, -1, sf, 1 + random.nextInt(8)));
+                assertEquals(expected, WavefrontAligner.score(seq1, seq2, -10, -1, sf, pool, 7));
+                assertEquals(expected, dispatcher.score(seq1, seq2, -10, -1, sf));
+                assertEquals(expected, dispatcher.align(seq1, seq2, -10, -1, sf).getScore());
+            }
+            assertEquals(-3, dispatcher.score("kitten", "sitting", -1, -1, NWUtils.UNIT_COST));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void dispatcherCalibrationSavedAndLoaded() throws IOException {
+        Path dir = Files.createTempDirectory("calibration");
+        Path path = dir.resolve("calibration.properties");
+        ForkJoinPool pool = new ForkJoinPool(2), other = new ForkJoinPool(3);
+        try {
+            AlignmentDispatcher saved = new AlignmentDispatcher(pool, null), loaded = new AlignmentDispatcher(pool, null);
+            assertFalse(loaded.loadCalibration(path));
+
+            saved.calibrate(NWUtils::dnaFull);
+            saved.saveCalibration(path);
+            assertTrue(loaded.loadCalibration(path));
+            for (AlignmentDispatcher.Engine engine : AlignmentDispatcher.Engine.values()) {
+                assertEquals(saved.getThroughput(engine), loaded.getThroughput(engine));
+            }
+
+            // пропускная способность WAVEFRONT зависит от числа потоков
+            assertFalse(new AlignmentDispatcher(other, null).loadCalibration(path));
+        } finally {
+            pool.shutdown();
+            other.shutdown();
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    public void linearGapsMatchLab1() {
+        Random random = new Random(17);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (int k = 0; k < 200; k++) {
+                boolean amino = k % 2 == 0;
+                String alphabet = amino ? "ARNDCQEGHILKMFPSTWYV" : "ACGT";
+                BiFunction<Character, Character, Integer> sf = amino ? NWUtils::blosum62 : NWUtils::dnaFull;
+                String seq1 = randomSequence(random, alphabet, random.nextInt(60)),
+                       seq2 = randomSequence(random, alphabet, random.nextInt(60));
+                int gap = -1 - random.nextInt(12);
+
+                Alignment reference = Lab1Reference.align(seq1, seq2, gap, sf);
+                int expected = reference.getScore();
+                Alignment alignment = NWAligner.align(seq1, seq2, gap, gap, sf);
+                assertEquals(expected, alignment.getScore());
+                assertEquals(expected, linearScore(alignment, gap, sf));
+                // из равноценных выравниваний выбирается то же, что в lab1
+                assertEquals(reference.getFirstSeq(), alignment.getFirstSeq());
+                assertEquals(reference.getSecondSeq(), alignment.getSecondSeq());
+                assertEquals(expected, NWAligner.alignmentScore(seq1, seq2, gap, gap, sf));
+                assertEquals(expected, BandedAligner.score(seq1, seq2, gap, gap, sf, 4));
+                assertEquals(expected, WavefrontAligner.score(seq1, seq2, gap, gap, sf, pool, 5));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void affineEnginesMatchLab2() {
+        Random random = new Random(19);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (int k = 0; k < 200; k++) {
+                boolean amino = k % 2 == 0;
+                String alphabet = amino ? "ARNDCQEGHILKMFPSTWYV" : "ACGT";
+                BiFunction<Character, Character, Integer> sf = amino ? NWUtils::blosum62 : NWUtils::dnaFull;
+                String seq1 = randomSequence(random, alphabet, random.nextInt(60)),
+                       seq2 = randomSequence(random, alphabet, random.nextInt(60));
+                int extend = -1 - random.nextInt(3), open = extend - random.nextInt(12);
+
+                int expected = Lab2Reference.score(seq1, seq2, open, extend, sf);
+                assertEquals(expected, NWAligner.align(seq1, seq2, open, extend, sf).getScore());
+                assertEquals(expected, NWAligner.affineScore(seq1, seq2, open, extend, sf));
+                assertEquals(expected, new AlignmentEnumerator(seq1, seq2, open, extend, sf).getBestScore());
+                assertEquals(expected, BandedAligner.score(seq1, seq2, open, extend, sf, 4));
+                assertEquals(expected, WavefrontAligner.score(seq1, seq2, open, extend, sf, pool, 5));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static int linearScore(Alignment alignment, int gap, BiFunction<Character, Character, Integer> scoreFunction) {
+        String first = alignment.getFirstSeq(), second = alignment.getSecondSeq();
+        int score = 0;
+        for (int k = 0; k < first.length(); k++) {
+            score += first.charAt(k) == '_' || second.charAt(k) == '_' ? gap : scoreFunction.apply(first.charAt(k), second.charAt(k));
+        }
+        return score;
+    }
+
+    private static void checkExecutor(AlignmentExecutor.Mode mode) throws Exception {
+        Random random = new Random(11);
+        List<String[]> pairs = new ArrayList<>();
+        List<CompletableFuture<Alignment>> results = new ArrayList<>();
+
+        try (AlignmentExecutor executor = new AlignmentExecutor(mode, -10, -1)) {
+            executor.setBatchSize(8);
+            for (int k = 0; k < 102; k++) {
+                String[] pair = {randomSequence(random, "ACGT", random.nextInt(k % 10 == 0 ? 200 : 20)),
+                                 randomSequence(random, "ACGT", random.nextInt(20))};
+                pairs.add(pair);
+                results.add(executor.submit(pair[0], pair[1], NWUtils::dnaFull));
+            }
+            // неполная пачка отправляется по таймеру, без flush()
+            results.get(101).get(5, TimeUnit.SECONDS);
+        }
+
+        for (int k = 0; k < pairs.size(); k++) {
+            Alignment expected = NWAligner.align(pairs.get(k)[0], pairs.get(k)[1], -10, -1, NWUtils::dnaFull);
+            Alignment actual = results.get(k).get();
+            assertEquals(expected.getScore(), actual.getScore());
+            assertEquals(expected.getFirstSeq(), actual.getFirstSeq());
+            assertEquals(expected.getSecondSeq(), actual.getSecondSeq());
+        }
+    }
+
+    private static String randomSequence(Random random, String alphabet, int length) {
+        StringBuilder seq = new StringBuilder();
+        for (int k = 0; k < length; k++) {
+            seq.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return seq.toString();
+    }
+}
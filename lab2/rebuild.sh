@@ -1,2 +0,0 @@
-#!/bin/bash
-mvn assembly:assembly -DdescriptorId=jar-with-dependencies
@@ -0,0 +1,5 @@
+#!/bin/bash
+mvn install
+for module in cli benchmark server; do
+    (cd $module && mvn assembly:assembly -DdescriptorId=jar-with-dependencies)
+done
@@ -0,0 +1,314 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.cli.*;
+
+import javax.naming.ConfigurationException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+
+/**
+ * HTTP-сервер выравниваний. Тело запроса - две последовательности в двух строках, тип вещества - параметр compound
+ * ('a' или 'n', по умолчанию 'a'):
+ *
+ * POST /align - выравнивание и скор в том же виде, что печатает align;
+ * POST /score - только скор, способ подсчета выбирает {@link AlignmentDispatcher}.
+ *
+ * Ошибки во входных данных возвращаются с кодом 400 и сообщением "[error] ...". Время и память подсчета растут как
+ * произведение длин последовательностей, поэтому тело запроса больше maxBody байт не читается, а пары, у которых
+ * произведение длин больше maxCells, не считаются; оба случая отклоняются с кодом 413. Если памяти на выравнивание
+ * не хватило, возвращается 503, при прочих сбоях - 500.
+ */
+public class RunAlignmentServer {
+    static final int DEFAULT_MAX_BODY = 1 << 20;
+    static final long DEFAULT_MAX_CELLS = 100_000_000L;
+
+    public static void main(String[] args) {
+        try {
+            CommandLine cmd = initCommandLine(args);
+
+            if(cmd != null) {
+                int port = cmd.hasOption('p') ? parseInt(cmd.getOptionValue('p')).orElse(-1) : 8080;
+                int threads = cmd.hasOption('t')
+                        ? parseInt(cmd.getOptionValue('t')).orElse(0)
+                        : Runtime.getRuntime().availableProcessors();
+                int maxBody = cmd.hasOption("max-body") ? parseInt(cmd.getOptionValue("max-body")).orElse(0) : DEFAULT_MAX_BODY;
+                long maxCells = cmd.hasOption("max-cells") ? parseLong(cmd.getOptionValue("max-cells")).orElse(0L) : DEFAULT_MAX_CELLS;
+                int open, extend;
+
+                if(cmd.hasOption('g') && (cmd.hasOption("open") || cmd.hasOption('e'))) {
+                    throw new ConfigurationException("Option g can not be combined with options open, e");
+                }
+                if(!cmd.hasOption('g') && (!cmd.hasOption("open") || !cmd.hasOption('e'))) {
+                    throw new ConfigurationException("Missing required options: g or open, e");
+                }
+
+                if(cmd.hasOption('g')) {
+                    open = extend = parseInt(cmd.getOptionValue('g')).orElse(-10);
+                } else {
+                    open = parseInt(cmd.getOptionValue("open")).orElse(-10);
+                    extend = parseInt(cmd.getOptionValue("e")).orElse(-1);
+                }
+
+                if(open > 0) {
+                    throw new ConfigurationException("Invalid open value. It should be negative integer");
+                }
+                if(extend > 0) {
+                    throw new ConfigurationException("Invalid extend value. It should be negative integer");
+                }
+                if(port < 0 || port > 65535) {
+                    throw new ConfigurationException("Invalid port value. It should be integer from 0 to 65535");
+                }
+                if(threads < 1) {
+                    throw new ConfigurationException("Invalid threads value. It should be positive integer");
+                }
+                if(maxBody < 1) {
+                    throw new ConfigurationException("Invalid max-body value. It should be positive integer");
+                }
+                if(maxCells < 1) {
+                    throw new ConfigurationException("Invalid max-cells value. It should be positive integer");
+                }
+
+                HttpServer server = start(port, threads, open, extend, maxBody, maxCells);
+                System.out.println("Listening on port " + server.getAddress().getPort());
+            }
+
+        } catch (ConfigurationException e) {
+            String msg = e.getMessage();
+            System.err.printf("[error] Invalid alignment configuration %s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+        } catch (IOException e) {
+            String msg = e.getMessage();
+            System.err.printf("[error] Unable to start server%s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+        }
+    }
+
+    /**
+     * Запускает сервер на порту port (0 - любой свободный) с пулом из threads потоков для обработки запросов.
+     * Запросы с телом больше maxBody байт и пары с произведением длин больше maxCells отклоняются. Перед запуском замеряется скорость способов подсчета для каждой
+     * скоринг функции (см. {@link AlignmentDispatcher#calibrate}).
+     */
+    static HttpServer start(int port, int threads, int open, int extend, int maxBody, long maxCells) throws IOException {
+        Map<String, AlignmentDispatcher> dispatchers = new HashMap<>();
+        dispatchers.put("a", new AlignmentDispatcher(ForkJoinPool.commonPool(), null));
+        dispatchers.put("n", new AlignmentDispatcher(ForkJoinPool.commonPool(), null));
+        dispatchers.get("a").calibrate(NWUtils::blosum62);
+        dispatchers.get("n").calibrate(NWUtils::dnaFull);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        server.createContext("/align", exchange -> handle(exchange, maxBody, maxCells, dispatchers, (seqs, sf, dispatcher) -> {
+            Alignment alignment = dispatcher.align(seqs[0], seqs[1], open, extend, sf);
+            StringWriter out = new StringWriter();
+            NWAligner.printAlignmentAndScore(alignment.getScore(), alignment.getFirstSeq(), alignment.getSecondSeq(), new PrintWriter(out, true));
+            return out.toString();
+        }));
+        server.createContext("/score", exchange -> handle(exchange, maxBody, maxCells, dispatchers, (seqs, sf, dispatcher) ->
+                "Score: " + dispatcher.score(seqs[0], seqs[1], open, extend, sf) + System.lineSeparator()));
+
+        server.setExecutor(executor);
+        server.start();
+        return server;
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        String apply(String[] seqs, BiFunction<Character, Character, Integer> scoreFunction, AlignmentDispatcher dispatcher);
+    }
+
+    private static void handle(HttpExchange exchange, int maxBody, long maxCells, Map<String, AlignmentDispatcher> dispatchers, Action action) throws IOException {
+        int status = 200;
+        String response;
+
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                status = 405;
+                throw new IllegalArgumentException("Only POST requests are supported");
+            }
+
+            // сначала по заголовку Content-Length, затем по фактически прочитанному (тело может передаваться частями)
+            String length = exchange.getRequestHeaders().getFirst("Content-Length");
+            Optional<byte[]> body = length != null && parseLong(length).orElse(0L) > maxBody
+                    ? Optional.empty()
+                    : readAll(exchange.getRequestBody(), maxBody);
+            if (!body.isPresent()) {
+                status = 413;
+                throw new IllegalArgumentException("Request body exceeds " + maxBody + " bytes");
+            }
+
+            String compound = queryParameter(exchange, "compound").orElse("a");
+            String[] seqs = new String(body.get(), StandardCharsets.UTF_8).trim().split("\\s+");
+            if (seqs.length != 2) {
+                throw new IllegalArgumentException("Request body should contain two sequences");
+            }
+            if ((long) seqs[0].length() * seqs[1].length() > maxCells) {
+                status = 413;
+                throw new IllegalArgumentException(String.format("Sequences of lengths %d and %d exceed %d matrix cells",
+                        seqs[0].length(), seqs[1].length(), maxCells));
+            }
+
+            BiFunction<Character, Character, Integer> scoreFunction;
+            if (compound.equals("a") && NWUtils.isAminoAcidsSequence(seqs[0]) && NWUtils.isAminoAcidsSequence(seqs[1])) {
+                scoreFunction = NWUtils::blosum62;
+            } else if (compound.equals("n") && NWUtils.isNucleotideSequence(seqs[0]) && NWUtils.isNucleotideSequence(seqs[1])) {
+                scoreFunction = NWUtils::dnaFull;
+            } else {
+                throw new IllegalArgumentException("Invalid input sequence");
+            }
+
+            response = action.apply(seqs, scoreFunction, dispatchers.get(compound));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            status = status == 200 ? 400 : status;
+            response = "[error] " + e.getMessage() + System.lineSeparator();
+        } catch (RuntimeException e) {
+            status = 500;
+            response = "[error] Internal error: " + e + System.lineSeparator();
+            System.err.printf("[error] %s %s: %s%n", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+        } catch (OutOfMemoryError e) {
+            // матрица запроса уже недостижима, сервер может обслуживать дальше
+            status = 503;
+            response = "[error] Not enough memory for the alignment" + System.lineSeparator();
+            System.err.printf("[error] %s %s: %s%n", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+        }
+
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Optional<String> queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                String[] pair = parameter.split("=", 2);
+                if (pair.length == 2 && pair[0].equals(name)) {
+                    return Optional.of(pair[1]);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    // тело запроса или Optional.empty(), если в нем больше limit байт
+    private static Optional<byte[]> readAll(InputStream in, int limit) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int read; (read = in.read(buffer)) != -1; ) {
+            if (bytes.size() + read > limit) {
+                return Optional.empty();
+            }
+            bytes.write(buffer, 0, read);
+        }
+        return Optional.of(bytes.toByteArray());
+    }
+
+    private static CommandLine initCommandLine(String[] args) {
+        Options cmdOptions = new Options();
+
+        cmdOptions.addOption(
+                Option.builder("p")
+                        .longOpt("port")
+                        .desc("Port to listen on. Default value: 8080.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("g")
+                        .longOpt("gap")
+                        .desc("Fine of gap for linear gap penalty (the same as --open and --extend with equal values).")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder()
+                        .longOpt("open")
+                        .desc("Fine of open gap. Required unless --gap is given.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("e")
+                        .longOpt("extend")
+                        .desc("Fine of gap extend. Required unless --gap is given.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder("t")
+                        .longOpt("threads")
+                        .desc("Number of request handling threads. Default value: number of available processors.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder()
+                        .longOpt("max-body")
+                        .desc("Maximum request body size in bytes, larger requests get 413. Default value: 1048576.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Integer.class)
+                        .build()
+        );
+        cmdOptions.addOption(
+                Option.builder()
+                        .longOpt("max-cells")
+                        .desc("Maximum product of sequence lengths, larger requests get 413. Default value: 100000000.")
+                        .hasArg()
+                        .numberOfArgs(1)
+                        .type(Long.class)
+                        .build()
+        );
+
+        CommandLine cmd = null;
+        try {
+            cmd = new DefaultParser().parse(cmdOptions, args);
+        } catch (ParseException e) {
+            String msg = e.getMessage();
+            System.err.printf("[error] Invalid command line arguments%s.\n", (msg == null || msg.length() == 0) ? "" : ": " + msg);
+            HelpFormatter formatter = new HelpFormatter();
+            formatter.printHelp("align-server", cmdOptions, true);
+        }
+        return cmd;
+    }
+
+    private static Optional<Integer> parseInt(String toParse) {
+        try {
+            return Optional.of(Integer.parseInt(toParse));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<Long> parseLong(String toParse) {
+        try {
+            return Optional.of(Long.parseLong(toParse));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class Tests {
+    @Test
+    public void alignAndScoreRoundTrip() throws Exception {
+        HttpServer server = RunAlignmentServer.start(0, 2, -10, -1, 1000, 10_000);
+        try {
+            int port = server.getAddress().getPort();
+            Alignment alignment = NWAligner.align("ACGT", "ACGGCTT", -10, -1, NWUtils::dnaFull);
+            StringWriter expected = new StringWriter();
+            NWAligner.printAlignmentAndScore(alignment.getScore(), alignment.getFirstSeq(), alignment.getSecondSeq(), new PrintWriter(expected, true));
+
+            assertEquals(new Response(200, expected.toString()), post(port, "/align?compound=n", "ACGT\nACGGCTT"));
+            assertEquals(new Response(200, "Score: " + alignment.getScore() + System.lineSeparator()),
+                    post(port, "/score?compound=n", "ACGT\nACGGCTT"));
+
+            Response invalid = post(port, "/score?compound=a", "ACGT");
+            assertEquals(400, invalid.status);
+            assertTrue(invalid.body.startsWith("[error] Request body should contain two sequences"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void largeBodyRejected() throws Exception {
+        HttpServer server = RunAlignmentServer.start(0, 1, -10, -1, 1000, 10_000);
+        try {
+            String seq = String.join("", Collections.nCopies(600, "A"));
+            // с Content-Length и без него (тело частями)
+            for (boolean chunked : new boolean[]{false, true}) {
+                Response response = post(server.getAddress().getPort(), "/score?compound=n", seq + "\n" + seq, chunked);
+                assertEquals(413, response.status);
+                assertTrue(response.body.startsWith("[error] Request body exceeds 1000 bytes"));
+            }
+
+            // тело небольшое, но матрица больше 10000 ячеек
+            String first = String.join("", Collections.nCopies(200, "A")), second = String.join("", Collections.nCopies(51, "C"));
+            Response response = post(server.getAddress().getPort(), "/align?compound=n", first + "\n" + second);
+            assertEquals(413, response.status);
+            assertTrue(response.body.startsWith("[error] Sequences of lengths 200 and 51 exceed 10000 matrix cells"));
+            assertEquals(200, post(server.getAddress().getPort(), "/align?compound=n", first + "\n" + second.substring(1)).status);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Response && status == ((Response) o).status && body.equals(((Response) o).body);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * status + body.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return status + " " + body;
+        }
+    }
+
+    private static Response post(int port, String path, String body) throws IOException {
+        return post(port, path, body, false);
+    }
+
+    private static Response post(int port, String path, String body, boolean chunked) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        if (chunked) {
+            connection.setChunkedStreamingMode(256);
+        }
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                bytes.write(buffer, 0, read);
+            }
+            return new Response(status, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.function.BiFunction;
+
+/**
+ * Аффинное выравнивание из lab2 до оптимизаций: три отдельные матрицы int[n][m] - эталон скора для всех способов
+ * подсчета (тесты core и RunRegressionHarness). Восстановление выравнивания не взято: в исходной версии оно
+ * зацикливалось на нулевом столбце. Не предназначено для рабочих выравниваний - память O(n * m) в трех матрицах,
+ * поэтому лежит в модуле test-support, а не в core.
+ */
+public class Lab2Reference {
+    private static void initMatrices(int[][] matrix_m, int[][] matrix_i, int[][] matrix_d, int n, int m, int open, int extend) {
+        int inf = 2 * open + (n + m) * extend + 1;
+
+        matrix_m[0][0] = 0;
+        matrix_d[0][0] = matrix_i[0][0] = inf;
+
+        for (int i = 1; i < n; i++) {
+            matrix_m[i][0] = matrix_d[i][0] = inf;
+            matrix_i[i][0] = open + (i - 1) * extend;
+        }
+
+        for (int j = 1; j < m; j++) {
+            matrix_m[0][j] = matrix_d[0][j] = inf;
+            matrix_i[0][j] = open + (j - 1) * extend;
+        }
+    }
+
+    private static int max(int a, int b, int c) {
+        return Math.max(a, Math.max(b, c));
+    }
+
+    public static int score(String firstSeq, String secondSeq, int open, int extend, BiFunction<Character, Character, Integer> scoreFunction) {
+        int n = firstSeq.length() + 1,
+            m = secondSeq.length() + 1;
+
+        int[][] matrix_m = new int[n][m],
+                matrix_i = new int[n][m],
+                matrix_d = new int[n][m];
+
+        initMatrices(matrix_m, matrix_i, matrix_d, n, m, open, extend);
+
+        for (int i = 1; i < n; i++) {
+            for (int j = 1; j < m; j++) {
+                int score_m = scoreFunction.apply(firstSeq.charAt(i - 1), secondSeq.charAt(j - 1));
+                matrix_m[i][j] = max(matrix_m[i - 1][j - 1] + score_m, matrix_i[i - 1][j - 1] + score_m, matrix_d[i - 1][j - 1] + score_m);
+                matrix_i[i][j] = max(matrix_i[i][j - 1] + extend, matrix_m[i][j - 1] + open, matrix_d[i][j - 1] + open);
+                matrix_d[i][j] = max(matrix_i[i - 1][j] + extend, matrix_m[i - 1][j] + open, matrix_d[i - 1][j] + open);
+            }
+        }
+
+        return max(matrix_i[n - 1][m - 1], matrix_d[n - 1][m - 1], matrix_m[n - 1][m - 1]);
+    }
+}